@@ -0,0 +1,85 @@
+package com.dio.challenge.benchmarks;
+
+import com.dio.challenge.storefront.StorefrontServiceApplication;
+import com.dio.challenge.warehouse.WarehouseServiceApplication;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+// Boots the real service contexts with the broker and the warehouse HTTP API replaced by
+// in-process stand-ins. Both services ship an application.properties, so the benchmark
+// ignores them and passes every setting explicitly.
+public final class BenchmarkContexts {
+    
+    private static final String[] COMMON_ARGS = {
+            "--spring.config.name=benchmark",
+            "--spring.jpa.hibernate.ddl-auto=validate",
+            "--spring.datasource.username=sa",
+            "--spring.datasource.password=",
+            "--spring.rabbitmq.listener.simple.auto-startup=false",
+            "--logging.level.root=WARN"
+    };
+    
+    private BenchmarkContexts() {}
+    
+    public static ConfigurableApplicationContext storefront(InProcessExchangeFunction warehouseApi, String... extraArgs) {
+        return new SpringApplicationBuilder(StorefrontServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .initializers(context -> {
+                    GenericApplicationContext generic = (GenericApplicationContext) context;
+                    generic.registerBean("inProcessWebClient", WebClient.class,
+                            () -> WebClient.builder().exchangeFunction(warehouseApi).build(),
+                            definition -> definition.setPrimary(true));
+                    generic.registerBean("inProcessRabbitTemplate", RabbitTemplate.class,
+                            () -> new InProcessRabbitTemplate(generic.getBean(MessageConverter.class)),
+                            definition -> definition.setPrimary(true));
+                })
+                .run(withCommonArgs(concat(extraArgs,
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark-storefront",
+                        "--spring.flyway.locations=classpath:db/migration/storefront",
+                        "--warehouse.service.url=http://in-process")));
+    }
+    
+    public static ConfigurableApplicationContext warehouse(String... extraArgs) {
+        return new SpringApplicationBuilder(WarehouseServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .initializers(context -> {
+                    GenericApplicationContext generic = (GenericApplicationContext) context;
+                    generic.registerBean("inProcessRabbitTemplate", RabbitTemplate.class,
+                            () -> new InProcessRabbitTemplate(generic.getBean(MessageConverter.class)),
+                            definition -> definition.setPrimary(true));
+                })
+                .run(withCommonArgs(concat(extraArgs,
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark-warehouse",
+                        "--spring.flyway.locations=classpath:db/migration/warehouse")));
+    }
+    
+    // The services log every publish with System.out.println; the formatting cost stays in
+    // the measurement but the output is dropped so JMH results remain readable
+    public static void silenceStdout() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+    
+    private static String[] withCommonArgs(String... args) {
+        return concat(COMMON_ARGS, args);
+    }
+    
+    private static String[] concat(String[] first, String... second) {
+        String[] all = new String[first.length + second.length];
+        System.arraycopy(first, 0, all, 0, first.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+        return all;
+    }
+}
@@ -0,0 +1,82 @@
+package com.dio.challenge.benchmarks;
+
+import com.dio.challenge.warehouse.model.Product;
+import com.dio.challenge.warehouse.repository.ProductRepository;
+import com.dio.challenge.warehouse.service.CatalogSnapshots;
+import com.dio.challenge.warehouse.service.CatalogVersion;
+import com.dio.challenge.warehouse.service.ProductService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Body of GET /api/products/available: queried and serialized per request (the old path) against
+// the prebuilt snapshot, plain and gzip, plus the rebuild a catalog change costs. HTTP itself is
+// left out; the snapshot reads are what a request pays beyond writing the bytes
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogListingBenchmark {
+    
+    @Param({"100", "1000"})
+    private int products;
+    
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private ObjectMapper objectMapper;
+    private CatalogSnapshots catalogSnapshots;
+    private CatalogVersion catalogVersion;
+    private Long someProductId;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkContexts.silenceStdout();
+        context = BenchmarkContexts.warehouse();
+        productService = context.getBean(ProductService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        catalogSnapshots = context.getBean(CatalogSnapshots.class);
+        catalogVersion = context.getBean(CatalogVersion.class);
+        
+        List<Product> catalog = new ArrayList<>();
+        for (int i = 0; i < products; i++) {
+            catalog.add(new Product("Product " + i, "Benchmark product number " + i, new BigDecimal("49.90"), 1000));
+        }
+        someProductId = context.getBean(ProductRepository.class).saveAll(catalog).get(0).getId();
+        rebuildSnapshots();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public byte[] queryAndSerialize() throws Exception {
+        return objectMapper.writeValueAsBytes(productService.getAvailableProducts());
+    }
+    
+    @Benchmark
+    public byte[] snapshotPlain() {
+        return catalogSnapshots.getAvailable().getBody(false);
+    }
+    
+    @Benchmark
+    public byte[] snapshotGzip() {
+        return catalogSnapshots.getAvailable().getBody(true);
+    }
+    
+    // Both listings, queried, serialized and compressed once
+    @Benchmark
+    public CatalogSnapshots.Snapshot rebuildSnapshots() {
+        catalogVersion.changed(someProductId);
+        catalogSnapshots.refresh();
+        return catalogSnapshots.getAvailable();
+    }
+}
@@ -0,0 +1,35 @@
+package com.dio.challenge.benchmarks;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Stands in for the warehouse HTTP API: canned JSON bodies keyed by request path, decoded
+// by the real WebClient codecs so only the network hop is taken out of the measurement
+public class InProcessExchangeFunction implements ExchangeFunction {
+    
+    private final Map<String, String> responses = new ConcurrentHashMap<>();
+    
+    public void respond(String path, String json) {
+        responses.put(path, json);
+    }
+    
+    @Override
+    public Mono<ClientResponse> exchange(ClientRequest request) {
+        String body = responses.get(request.url().getPath());
+        if (body == null) {
+            return Mono.just(ClientResponse.create(HttpStatus.NOT_FOUND).build());
+        }
+        return Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body)
+                .build());
+    }
+}
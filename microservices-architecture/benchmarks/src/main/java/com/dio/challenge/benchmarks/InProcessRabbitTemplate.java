@@ -0,0 +1,34 @@
+package com.dio.challenge.benchmarks;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// RabbitTemplate that still converts payloads with the service's converter and acks publisher
+// confirms, but never touches a broker
+public class InProcessRabbitTemplate extends RabbitTemplate {
+    
+    private final LongAdder sent = new LongAdder();
+    
+    public InProcessRabbitTemplate(MessageConverter messageConverter) {
+        super(new CachingConnectionFactory());
+        setMessageConverter(messageConverter);
+    }
+    
+    @Override
+    public void send(String exchange, String routingKey, Message message, CorrelationData correlationData) {
+        sent.increment();
+        // Confirm immediately, as a broker with publisher confirms would
+        if (correlationData != null) {
+            correlationData.getFuture().complete(new CorrelationData.Confirm(true, null));
+        }
+    }
+    
+    public long getSentCount() {
+        return sent.sum();
+    }
+}
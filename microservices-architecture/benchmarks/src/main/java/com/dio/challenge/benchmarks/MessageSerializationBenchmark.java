@@ -0,0 +1,93 @@
+package com.dio.challenge.benchmarks;
+
+import com.dio.challenge.storefront.config.CborMessageConverter;
+import com.dio.challenge.storefront.dto.OrderCreatedMessage;
+import com.dio.challenge.warehouse.dto.StockUpdateMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Wire conversion done by the converters both services install, JSON and CBOR (format); the
+// consumer side resolves the target type from the listener parameter, as @RabbitListener does.
+// Body sizes are printed at setup
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageSerializationBenchmark {
+    
+    @Param({"1", "20"})
+    private int orderItems;
+    
+    @Param({"json", "cbor"})
+    private String format;
+    
+    // Same ObjectMapper settings as the Spring Boot auto-configured mapper the services use
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private MessageConverter converter;
+    private OrderCreatedMessage orderCreatedMessage;
+    private StockUpdateMessage stockUpdateMessage;
+    private Message orderCreatedWire;
+    private Message stockUpdateWire;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        converter = format.equals("cbor")
+                ? new CborMessageConverter(objectMapper)
+                : new Jackson2JsonMessageConverter(objectMapper);
+        List<OrderCreatedMessage.OrderItemMessage> items = new ArrayList<>();
+        for (long productId = 1; productId <= orderItems; productId++) {
+            items.add(new OrderCreatedMessage.OrderItemMessage(productId, "Product " + productId, 2,
+                    new BigDecimal("49.90"), new BigDecimal("99.80")));
+        }
+        orderCreatedMessage = new OrderCreatedMessage(42L, "Benchmark Customer", "benchmark@example.com",
+                new BigDecimal("99.80").multiply(BigDecimal.valueOf(orderItems)), items);
+        stockUpdateMessage = new StockUpdateMessage(7L, "Gaming Mouse Logitech", 200, 198, 2, "SUBTRACT");
+        
+        orderCreatedWire = inferredAs(converter.toMessage(orderCreatedMessage, new MessageProperties()),
+                OrderCreatedMessage.class);
+        stockUpdateWire = inferredAs(converter.toMessage(stockUpdateMessage, new MessageProperties()),
+                com.dio.challenge.storefront.dto.StockUpdateMessage.class);
+        System.out.println(format + " OrderCreatedMessage bytes: " + orderCreatedWire.getBody().length
+                + ", StockUpdateMessage bytes: " + stockUpdateWire.getBody().length);
+    }
+    
+    @Benchmark
+    public Message serializeOrderCreated() {
+        return converter.toMessage(orderCreatedMessage, new MessageProperties());
+    }
+    
+    @Benchmark
+    public Object deserializeOrderCreated() {
+        return converter.fromMessage(orderCreatedWire);
+    }
+    
+    @Benchmark
+    public Message serializeStockUpdate() {
+        return converter.toMessage(stockUpdateMessage, new MessageProperties());
+    }
+    
+    @Benchmark
+    public Object deserializeStockUpdate() {
+        return converter.fromMessage(stockUpdateWire);
+    }
+    
+    private static Message inferredAs(Message message, Class<?> type) {
+        message.getMessageProperties().setInferredArgumentType(type);
+        return message;
+    }
+}
@@ -0,0 +1,93 @@
+package com.dio.challenge.benchmarks;
+
+import com.dio.challenge.storefront.model.Order;
+import com.dio.challenge.storefront.model.OrderItem;
+import com.dio.challenge.storefront.repository.OrderRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+// Bulk insert of orders: one order with `lines` items saved per transaction, with JDBC batching
+// off (jdbcBatchSize = 1) and on. Ids come from the pooled sequences either way, so the difference
+// is one INSERT per row against one batch per table. The JDBC statements one order prepares are
+// printed at the start of each trial
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderPersistenceBenchmark {
+    
+    @Param({"1", "50"})
+    private int lines;
+    
+    @Param({"1", "50"})
+    private int jdbcBatchSize;
+    
+    private ConfigurableApplicationContext context;
+    private OrderRepository orderRepository;
+    private TransactionTemplate transactionTemplate;
+    private JdbcTemplate jdbcTemplate;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        PrintStream out = System.out;
+        BenchmarkContexts.silenceStdout();
+        InProcessExchangeFunction warehouseApi = new InProcessExchangeFunction();
+        warehouseApi.respond("/api/products", "[]");
+        context = BenchmarkContexts.storefront(warehouseApi,
+                "--spring.jpa.properties.hibernate.jdbc.batch_size=" + jdbcBatchSize,
+                "--spring.jpa.properties.hibernate.generate_statistics=true");
+        orderRepository = context.getBean(OrderRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        
+        Statistics statistics = context.getBean(EntityManagerFactory.class)
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        persistOrder();
+        statistics.clear();
+        persistOrder();
+        out.println("lines=" + lines + " jdbcBatchSize=" + jdbcBatchSize
+                + " JDBC statements per order: " + statistics.getPrepareStatementCount());
+    }
+    
+    // Keeps the in-memory tables from growing across iterations
+    @TearDown(Level.Iteration)
+    public void clearOrders() {
+        jdbcTemplate.update("DELETE FROM order_items");
+        jdbcTemplate.update("DELETE FROM orders");
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public Order persistOrder() {
+        return transactionTemplate.execute(status -> orderRepository.save(newOrder()));
+    }
+    
+    private Order newOrder() {
+        Order order = new Order("Benchmark Customer", "benchmark@example.com", BigDecimal.ZERO);
+        BigDecimal total = BigDecimal.ZERO;
+        for (long productId = 1; productId <= lines; productId++) {
+            OrderItem item = new OrderItem(order, productId, "Product " + productId, 2, new BigDecimal("49.90"));
+            order.getItems().add(item);
+            total = total.add(item.getTotalPrice());
+        }
+        order.setTotalAmount(total);
+        return order;
+    }
+}
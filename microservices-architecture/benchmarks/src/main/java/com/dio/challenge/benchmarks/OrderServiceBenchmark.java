@@ -0,0 +1,72 @@
+package com.dio.challenge.benchmarks;
+
+import com.dio.challenge.storefront.dto.OrderDTO;
+import com.dio.challenge.storefront.dto.OrderItemDTO;
+import com.dio.challenge.storefront.dto.StockReservationResultDTO;
+import com.dio.challenge.storefront.model.Order;
+import com.dio.challenge.storefront.service.OrderService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderServiceBenchmark {
+    
+    @Param({"1", "5", "20", "50"})
+    private int cartSize;
+    
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private JdbcTemplate jdbcTemplate;
+    private OrderDTO orderDTO;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkContexts.silenceStdout();
+        InProcessExchangeFunction warehouseApi = new InProcessExchangeFunction();
+        warehouseApi.respond("/api/products", "[]");
+        
+        List<OrderItemDTO> items = new ArrayList<>();
+        List<StockReservationResultDTO.ReservedItem> reservedItems = new ArrayList<>();
+        for (long productId = 1; productId <= cartSize; productId++) {
+            items.add(new OrderItemDTO(productId, 2));
+            reservedItems.add(new StockReservationResultDTO.ReservedItem(
+                    productId, "Product " + productId, 2, new BigDecimal("49.90"), 1000));
+        }
+        StockReservationResultDTO reservation = new StockReservationResultDTO(true, reservedItems, new ArrayList<>());
+        warehouseApi.respond("/api/products/stock/reservations", new ObjectMapper().writeValueAsString(reservation));
+        
+        context = BenchmarkContexts.storefront(warehouseApi);
+        orderService = context.getBean(OrderService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        orderDTO = new OrderDTO("Benchmark Customer", "benchmark@example.com", items);
+    }
+    
+    // Keeps the in-memory tables from growing across iterations
+    @TearDown(Level.Iteration)
+    public void clearOrders() {
+        jdbcTemplate.update("DELETE FROM order_items");
+        jdbcTemplate.update("DELETE FROM orders");
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public Order createOrder() {
+        return orderService.createOrder(orderDTO);
+    }
+}
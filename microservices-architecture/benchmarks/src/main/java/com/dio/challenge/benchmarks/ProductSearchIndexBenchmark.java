@@ -0,0 +1,86 @@
+package com.dio.challenge.benchmarks;
+
+import com.dio.challenge.warehouse.model.Product;
+import com.dio.challenge.warehouse.service.ProductSearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// ProductSearchIndex.search over a synthetic catalog built outside any transaction, so
+// index() applies immediately; only the in-memory lookup is measured, not the row fetch
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class ProductSearchIndexBenchmark {
+    
+    private static final String[] BRANDS = {"Samsung", "Dell", "Sony", "LG", "Logitech", "Apple", "Lenovo",
+            "Philips", "Xiaomi", "Motorola", "Asus", "Acer", "JBL", "Bose", "Canon", "Nikon"};
+    private static final String[] CATEGORIES = {"Smartphone", "Notebook", "Headphones", "Smart TV", "Mouse",
+            "Keyboard", "Charger", "Speaker", "Monitor", "Tablet", "Camera", "Router", "Smartwatch", "Printer"};
+    private static final String[] FEATURES = {"wireless", "bluetooth", "gaming", "4K", "noise canceling",
+            "fast charging", "RGB lighting", "portable", "ultra slim", "waterproof", "high precision"};
+    
+    @Param({"100000", "1000000"})
+    private int skus;
+    
+    @Param({"20"})
+    private int limit;
+    
+    private ProductSearchIndex index;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new ProductSearchIndex();
+        Random random = new Random(42);
+        for (long id = 1; id <= skus; id++) {
+            String brand = BRANDS[random.nextInt(BRANDS.length)];
+            String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            Product product = new Product(
+                    category + " " + brand + " " + model(random),
+                    FEATURES[random.nextInt(FEATURES.length)] + " " + category.toLowerCase()
+                            + " with " + FEATURES[random.nextInt(FEATURES.length)],
+                    new BigDecimal("99.90"), 10);
+            product.setId(id);
+            index.index(product);
+        }
+    }
+    
+    // A brand plus a model code: a handful of matches
+    @Benchmark
+    public List<Long> selectiveQuery() {
+        return index.search("samsung x4821", limit);
+    }
+    
+    // Two words common to thousands of products
+    @Benchmark
+    public List<Long> twoWordQuery() {
+        return index.search("sony headphones", limit);
+    }
+    
+    // A two-letter keystroke from search-as-you-type
+    @Benchmark
+    public List<Long> shortPrefixQuery() {
+        return index.search("lg", limit);
+    }
+    
+    // A word that only appears in descriptions: every candidate has to be scored
+    @Benchmark
+    public List<Long> descriptionOnlyQuery() {
+        return index.search("waterproof", limit);
+    }
+    
+    @Benchmark
+    public List<Long> noMatchQuery() {
+        return index.search("zzq", limit);
+    }
+    
+    private static String model(Random random) {
+        return (char) ('A' + random.nextInt(26)) + String.valueOf(1000 + random.nextInt(9000));
+    }
+}
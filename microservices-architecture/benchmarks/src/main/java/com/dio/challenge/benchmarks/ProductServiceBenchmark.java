@@ -0,0 +1,92 @@
+package com.dio.challenge.benchmarks;
+
+import com.dio.challenge.warehouse.dto.StockUpdateDTO;
+import com.dio.challenge.warehouse.model.Product;
+import com.dio.challenge.warehouse.repository.ProductRepository;
+import com.dio.challenge.warehouse.service.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductServiceBenchmark {
+    
+    // Large enough that one unit per call never runs a product out of stock during a run
+    private static final int INITIAL_STOCK = 1_000_000_000;
+    private static final int THREADS = 8;
+    
+    // false: guarded UPDATE per call; true: in-memory StockLedger with write-behind
+    @Param({"false", "true"})
+    private boolean stockLedger;
+    
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private Long hotProductId;
+    private final List<Long> threadProductIds = new ArrayList<>();
+    private final AtomicInteger nextThreadProduct = new AtomicInteger();
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkContexts.silenceStdout();
+        context = BenchmarkContexts.warehouse("--warehouse.stock-ledger.enabled=" + stockLedger);
+        productService = context.getBean(ProductService.class);
+        ProductRepository productRepository = context.getBean(ProductRepository.class);
+        
+        hotProductId = productRepository.save(
+                new Product("Hot SKU", "Contended product", new BigDecimal("9.99"), INITIAL_STOCK)).getId();
+        for (int i = 0; i < THREADS; i++) {
+            threadProductIds.add(productRepository.save(
+                    new Product("SKU " + i, "Per-thread product", new BigDecimal("9.99"), INITIAL_STOCK)).getId());
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @State(Scope.Thread)
+    public static class ThreadProduct {
+        private Long productId;
+        
+        @Setup(Level.Trial)
+        public void assign(ProductServiceBenchmark benchmark) {
+            int index = benchmark.nextThreadProduct.getAndIncrement() % benchmark.threadProductIds.size();
+            productId = benchmark.threadProductIds.get(index);
+        }
+    }
+    
+    @Benchmark
+    @Threads(1)
+    public Product updateStockSingleThread() {
+        return productService.updateStock(new StockUpdateDTO(hotProductId, 1, "SUBTRACT")).orElseThrow();
+    }
+    
+    @Benchmark
+    @Threads(THREADS)
+    public Product updateStockContended() {
+        return productService.updateStock(new StockUpdateDTO(hotProductId, 1, "SUBTRACT")).orElseThrow();
+    }
+    
+    @Benchmark
+    @Threads(THREADS)
+    public Product updateStockUncontended(ThreadProduct threadProduct) {
+        return productService.updateStock(new StockUpdateDTO(threadProduct.productId, 1, "SUBTRACT")).orElseThrow();
+    }
+    
+    @Benchmark
+    @Threads(THREADS)
+    public boolean checkStockAvailability() {
+        return productService.checkStockAvailability(hotProductId, 1);
+    }
+}
@@ -0,0 +1,83 @@
+package com.dio.challenge.benchmarks;
+
+import com.dio.challenge.storefront.dto.ProductDTO;
+import com.dio.challenge.storefront.dto.StockUpdateMessage;
+import com.dio.challenge.storefront.service.MessageListener;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Storefront side of a restock burst: MessageListener.handleStockUpdates applying a burst of
+// stock updates to a warm catalog cache, delivered in batches of batchSize (1 is the old
+// message-by-message consumption). The broker and the container are left out, so this is the
+// listener's own cost per message, including conflation when several updates hit one product
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StockUpdateConsumerBenchmark {
+    
+    private static final int BURST_SIZE = 1000;
+    
+    @Param({"1", "100"})
+    private int batchSize;
+    
+    // Distinct products the burst is spread over; fewer products means more conflation
+    @Param({"10", "1000"})
+    private int products;
+    
+    private ConfigurableApplicationContext context;
+    private MessageListener messageListener;
+    private List<List<StockUpdateMessage>> batches;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkContexts.silenceStdout();
+        List<ProductDTO> catalog = new ArrayList<>();
+        for (long productId = 1; productId <= products; productId++) {
+            catalog.add(new ProductDTO(productId, "Product " + productId, "", new BigDecimal("49.90"), 1000));
+        }
+        InProcessExchangeFunction warehouseApi = new InProcessExchangeFunction();
+        warehouseApi.respond("/api/products", new ObjectMapper().writeValueAsString(catalog));
+        
+        context = BenchmarkContexts.storefront(warehouseApi);
+        messageListener = context.getBean(MessageListener.class);
+        
+        // No timestamps, so every update is applied rather than discarded as stale
+        batches = new ArrayList<>();
+        List<StockUpdateMessage> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < BURST_SIZE; i++) {
+            long productId = i % products + 1;
+            StockUpdateMessage message = new StockUpdateMessage(productId, "Product " + productId, 1000, 1000 - i, i, "SUBTRACT");
+            message.setTimestamp(null);
+            batch.add(message);
+            if (batch.size() == batchSize) {
+                batches.add(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(BURST_SIZE)
+    public void consumeBurst() {
+        for (List<StockUpdateMessage> batch : batches) {
+            messageListener.handleStockUpdates(batch);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.dio.challenge.benchmarks;
+
+import com.dio.challenge.warehouse.service.TimingWheel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost of one hold's life cycle in the TimingWheel behind StockHoldService with `pending` holds
+// outstanding. The clock is simulated: every call moves it one tick and schedules one hold that
+// expires `pending` ticks later, so the wheel stays at `pending` entries and one expires per call.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class TimingWheelBenchmark {
+    
+    @Param({"10000", "1000000"})
+    private int pending;
+    
+    private TimingWheel<Long> wheel;
+    private long now;
+    private long expired;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        wheel = new TimingWheel<>(1, 0);
+        for (now = 0; now < pending; now++) {
+            wheel.schedule(now, now + pending);
+        }
+    }
+    
+    @Benchmark
+    public long scheduleAndExpire() {
+        now++;
+        wheel.schedule(now, now + pending);
+        wheel.advance(now, hold -> expired++);
+        return expired;
+    }
+    
+    @Benchmark
+    public boolean scheduleAndCancel() {
+        return wheel.cancel(wheel.schedule(now, now + pending));
+    }
+}
@@ -0,0 +1,84 @@
+#!/bin/bash
+
+echo "🧵 Comparando Threads de Plataforma vs Virtuais - DIO Challenge"
+echo "=================================================="
+
+# Requer Java 21+ para o modo virtual, o gerador de carga 'hey' e o RabbitMQ rodando
+# (docker-compose up -d). Uso: ./scripts/compare-threading.sh [concorrência] [duração]
+CONCURRENCY=${1:-500}
+DURATION=${2:-30s}
+BASE_STOREFRONT="http://localhost:8080"
+
+if ! command -v hey > /dev/null 2>&1; then
+    echo "❌ 'hey' não encontrado. Instale com: go install github.com/rakyll/hey@latest"
+    exit 1
+fi
+
+JAVA_MAJOR=$(java -version 2>&1 | head -n1 | sed -E 's/.*version "([0-9]+).*/\1/')
+if [ "$JAVA_MAJOR" -lt 21 ]; then
+    echo "⚠️  Java $JAVA_MAJOR detectado: o modo virtual só é ativado a partir do Java 21"
+fi
+
+mkdir -p logs
+
+# Endpoints que passam a maior parte do tempo bloqueados (HTTP para o Warehouse e JPA/H2)
+ENDPOINTS=(
+    "/api/storefront/products/search?name=Samsung"
+    "/api/orders"
+)
+
+wait_for() {
+    local url=$1
+    for i in $(seq 1 60); do
+        if curl -sf "$url" > /dev/null 2>&1; then
+            return 0
+        fi
+        sleep 1
+    done
+    return 1
+}
+
+run_mode() {
+    local virtual=$1
+    local label=$2
+    local args="--spring.threads.virtual.enabled=$virtual"
+
+    echo "▶️  Modo: $label"
+    (cd warehouse-service && mvn -q spring-boot:run -Dspring-boot.run.arguments="$args" > ../logs/warehouse-$label.log 2>&1) &
+    local warehouse_pid=$!
+    wait_for "http://localhost:8081/api/products" || { echo "❌ Warehouse não iniciou"; kill $warehouse_pid; exit 1; }
+
+    (cd storefront-service && mvn -q spring-boot:run -Dspring-boot.run.arguments="$args" > ../logs/storefront-$label.log 2>&1) &
+    local storefront_pid=$!
+    wait_for "$BASE_STOREFRONT/api/orders" || { echo "❌ Storefront não iniciou"; kill $warehouse_pid $storefront_pid; exit 1; }
+
+    for endpoint in "${ENDPOINTS[@]}"; do
+        # Aquecimento antes da medição
+        hey -z 5s -c 50 "$BASE_STOREFRONT$endpoint" > /dev/null 2>&1
+        local result
+        result=$(hey -z "$DURATION" -c "$CONCURRENCY" "$BASE_STOREFRONT$endpoint")
+        local rps
+        rps=$(echo "$result" | grep "Requests/sec" | awk '{print $2}')
+        local p99
+        p99=$(echo "$result" | grep "99% in" | awk '{print $3}')
+        printf "   %-50s %12s req/s   p99 %ss\n" "$endpoint" "$rps" "$p99"
+    done
+
+    pkill -P $storefront_pid 2>/dev/null; kill $storefront_pid 2>/dev/null
+    pkill -P $warehouse_pid 2>/dev/null; kill $warehouse_pid 2>/dev/null
+    sleep 5
+
+    # Relatório de pinning gerado pelo VirtualThreadPinningMonitor
+    if [ "$virtual" = "true" ]; then
+        grep -h -A1 "pinned" logs/storefront-$label.log logs/warehouse-$label.log | head -n 20
+    fi
+    echo ""
+}
+
+echo "⚙️  Concorrência: $CONCURRENCY | Duração: $DURATION"
+echo ""
+run_mode false platform
+run_mode true virtual
+
+echo "🎉 Comparação concluída! Logs em logs/*-platform.log e logs/*-virtual.log"
+echo "=================================================="
@@ -0,0 +1,47 @@
+package com.dio.challenge.storefront.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+// Consuming side of queue lag: messages waiting in each queue this service listens on. Read from
+// the broker when scraped; reported as NaN while the broker cannot be reached.
+@Component
+public class ListenerQueueMetrics {
+    
+    private static final String[] QUEUES = {
+            RabbitMQConfig.STOCK_UPDATE_QUEUE,
+            RabbitMQConfig.LOW_STOCK_ALERT_QUEUE
+    };
+    
+    @Autowired
+    private AmqpAdmin amqpAdmin;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @PostConstruct
+    void registerMetrics() {
+        for (String queue : QUEUES) {
+            Gauge.builder("rabbitmq.queue.messages", () -> depth(queue))
+                    .description("Messages ready in a queue consumed by this service")
+                    .tag("queue", queue)
+                    .register(meterRegistry);
+        }
+    }
+    
+    private double depth(String queue) {
+        try {
+            QueueInformation info = amqpAdmin.getQueueInfo(queue);
+            return info != null ? info.getMessageCount() : Double.NaN;
+        } catch (AmqpException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package com.dio.challenge.storefront.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -91,17 +97,57 @@ public class RabbitMQConfig {
                 .with(LOW_STOCK_ALERT_ROUTING_KEY);
     }
     
-    // Message converter
+    // Message converter (Boot's ObjectMapper has the java.time module for the message timestamps).
+    // JSON unless the message says application/cbor, so listeners read both formats while
+    // publishers move to CBOR exchange by exchange (messaging.binary-exchanges)
     @Bean
-    public Jackson2JsonMessageConverter messageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public ContentTypeDelegatingMessageConverter messageConverter(ObjectMapper objectMapper) {
+        ContentTypeDelegatingMessageConverter converter =
+                new ContentTypeDelegatingMessageConverter(new Jackson2JsonMessageConverter(objectMapper));
+        converter.addDelegate(CborMessageConverter.CONTENT_TYPE, new CborMessageConverter(objectMapper));
+        return converter;
     }
     
     // RabbitTemplate
     @Bean
-    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
+    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, MessageConverter messageConverter) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
-        template.setMessageConverter(messageConverter());
+        template.setMessageConverter(messageConverter);
+        // Times every send as spring.rabbit.template
+        template.setObservationEnabled(true);
         return template;
     }
+    
+    // Boot's listener factory with observation on, so every @RabbitListener delivery is timed as
+    // spring.rabbit.listener
+    @Bean
+    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setObservationEnabled(true);
+        return factory;
+    }
+    
+    // Stock updates arrive in bursts, so their listener gets whole batches: up to batch-size
+    // messages, or fewer once none has arrived for receive-timeout-ms. The batch is acked as one
+    // after the listener returns, and redelivered as a whole if it throws
+    @Bean
+    public SimpleRabbitListenerContainerFactory stockUpdateListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            @Value("${stock-updates.batch-size:100}") int batchSize,
+            @Value("${stock-updates.receive-timeout-ms:50}") long receiveTimeoutMs,
+            @Value("${stock-updates.concurrency:1}") int concurrency) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(receiveTimeoutMs);
+        // A batch can only fill up if the broker lets that many messages be unacked at once
+        factory.setPrefetchCount(batchSize);
+        factory.setConcurrentConsumers(concurrency);
+        // Listener observations do not cover batches; MessageListener times them itself
+        return factory;
+    }
 }
@@ -0,0 +1,87 @@
+package com.dio.challenge.storefront.config;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Reports virtual threads pinned to their carrier (synchronized blocks around blocking I/O,
+// e.g. in JDBC drivers) using the jdk.VirtualThreadPinned JFR event available on Java 21+
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor implements SmartLifecycle {
+    
+    private static final int REPORTED_FRAMES = 8;
+    
+    @Value("${threading.pinning.threshold-ms:20}")
+    private long thresholdMs;
+    
+    private final Map<String, LongAdder> pinnedSites = new ConcurrentHashMap<>();
+    private RecordingStream recordingStream;
+    private volatile boolean running = false;
+    
+    @Override
+    public void start() {
+        recordingStream = new RecordingStream();
+        recordingStream.enable("jdk.VirtualThreadPinned")
+                .withThreshold(Duration.ofMillis(thresholdMs))
+                .withStackTrace();
+        recordingStream.onEvent("jdk.VirtualThreadPinned", this::report);
+        recordingStream.startAsync();
+        running = true;
+        System.out.println("Virtual thread pinning monitor started (threshold " + thresholdMs + " ms)");
+    }
+    
+    @Override
+    public void stop() {
+        running = false;
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+        if (!pinnedSites.isEmpty()) {
+            System.out.println("Virtual thread pinning summary:");
+            pinnedSites.forEach((site, count) -> System.out.println("  " + count.sum() + "x pinned at " + site));
+        }
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+    
+    private void report(RecordedEvent event) {
+        StringBuilder stack = new StringBuilder();
+        String site = null;
+        if (event.getStackTrace() != null) {
+            int reported = 0;
+            for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+                if (!frame.isJavaFrame()) {
+                    continue;
+                }
+                String type = frame.getMethod().getType().getName();
+                String location = type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+                // Group by the first frame outside the JDK, which is where the pinning lock was taken
+                if (site == null && !type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                    site = location;
+                }
+                if (reported < REPORTED_FRAMES) {
+                    stack.append("\n    at ").append(location);
+                    reported++;
+                }
+            }
+        }
+        if (site == null) {
+            site = "unknown";
+        }
+        pinnedSites.computeIfAbsent(site, key -> new LongAdder()).increment();
+        System.out.println("Virtual thread pinned for " + event.getDuration().toMillis() + " ms" + stack);
+    }
+}
@@ -3,7 +3,12 @@ package com.dio.challenge.storefront.config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 @Configuration
 public class WebClientConfig {
@@ -11,10 +16,25 @@ public class WebClientConfig {
     @Value("${warehouse.service.url}")
     private String warehouseServiceUrl;
     
+    @Value("${warehouse.client.max-connections:500}")
+    private int maxConnections;
+    
+    @Value("${warehouse.client.response-timeout-ms:5000}")
+    private long responseTimeoutMs;
+    
+    // Boot's builder records every call as http.client.requests (tagged with the URI template);
+    // the pool publishes its active, idle and pending connection gauges. A warehouse that stops
+    // answering fails the call after the response timeout instead of holding it open
     @Bean
-    public WebClient warehouseWebClient() {
-        return WebClient.builder()
+    public WebClient warehouseWebClient(WebClient.Builder builder) {
+        ConnectionProvider pool = ConnectionProvider.builder("warehouse")
+                .maxConnections(maxConnections)
+                .metrics(true)
+                .build();
+        return builder
                 .baseUrl(warehouseServiceUrl)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(pool)
+                        .responseTimeout(Duration.ofMillis(responseTimeoutMs))))
                 .build();
     }
 }
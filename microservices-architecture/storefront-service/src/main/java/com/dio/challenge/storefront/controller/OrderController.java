@@ -1,31 +1,56 @@
 package com.dio.challenge.storefront.controller;
 
+import com.dio.challenge.storefront.dto.CursorPageDTO;
+import com.dio.challenge.storefront.dto.OrderCountersStatsDTO;
 import com.dio.challenge.storefront.dto.OrderDTO;
+import com.dio.challenge.storefront.dto.OrderSummaryDTO;
 import com.dio.challenge.storefront.model.Order;
 import com.dio.challenge.storefront.model.OrderStatus;
+import com.dio.challenge.storefront.service.IdempotencyStore;
 import com.dio.challenge.storefront.service.OrderService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/orders")
 @CrossOrigin(origins = "*")
 public class OrderController {
     
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final String PREFER_HEADER = "Prefer";
+    private static final String PREFERENCE_APPLIED_HEADER = "Preference-Applied";
+    private static final String RESPOND_ASYNC = "respond-async";
+    
     @Autowired
     private OrderService orderService;
     
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+    
     @GetMapping
-    public ResponseEntity<List<Order>> getAllOrders() {
-        List<Order> orders = orderService.getAllOrders();
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<CursorPageDTO<OrderSummaryDTO>> getOrders(@RequestParam(required = false) String cursor,
+                                                                    @RequestParam(required = false) Integer limit) {
+        return page(() -> orderService.getOrders(cursor, limit));
+    }
+    
+    // Full export, selected with Accept: application/x-ndjson
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllOrders() {
+        StreamingResponseBody body = out -> orderService.exportOrders(out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
     
     @GetMapping("/{id}")
@@ -36,40 +61,77 @@ public class OrderController {
     }
     
     @GetMapping("/customer/{email}")
-    public ResponseEntity<List<Order>> getOrdersByCustomerEmail(@PathVariable String email) {
-        List<Order> orders = orderService.getOrdersByCustomerEmail(email);
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<CursorPageDTO<OrderSummaryDTO>> getOrdersByCustomerEmail(@PathVariable String email,
+                                                                                   @RequestParam(required = false) String cursor,
+                                                                                   @RequestParam(required = false) Integer limit) {
+        return page(() -> orderService.getOrdersByCustomerEmail(email, cursor, limit));
     }
     
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<Order>> getOrdersByStatus(@PathVariable OrderStatus status) {
-        List<Order> orders = orderService.getOrdersByStatus(status);
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<CursorPageDTO<OrderSummaryDTO>> getOrdersByStatus(@PathVariable OrderStatus status,
+                                                                            @RequestParam(required = false) String cursor,
+                                                                            @RequestParam(required = false) Integer limit) {
+        return page(() -> orderService.getOrdersByStatus(status, cursor, limit));
     }
     
     @GetMapping("/date-range")
-    public ResponseEntity<List<Order>> getOrdersByDateRange(
+    public ResponseEntity<CursorPageDTO<OrderSummaryDTO>> getOrdersByDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
-        List<Order> orders = orderService.getOrdersByDateRange(startDate, endDate);
-        return ResponseEntity.ok(orders);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return page(() -> orderService.getOrdersByDateRange(startDate, endDate, cursor, limit));
     }
     
+    // With an Idempotency-Key, a retry of a placed order gets that order back as it stands now
+    // (Idempotent-Replayed: true), a retry while it is still being placed gets 409, and reusing the
+    // key for a different order gets 422. With Prefer: respond-async the order is only accepted:
+    // 202 with a Location to poll, where it stays PENDING until its stock is reserved and it
+    // becomes CONFIRMED, or CANCELLED for lack of stock
     @PostMapping
-    public ResponseEntity<?> createOrder(@Valid @RequestBody OrderDTO orderDTO) {
+    public ResponseEntity<?> createOrder(@Valid @RequestBody OrderDTO orderDTO,
+                                         @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                         @RequestHeader(value = PREFER_HEADER, required = false) String prefer) {
+        boolean async = prefer != null && prefer.contains(RESPOND_ASYNC);
+        if (idempotencyKey == null) {
+            return placeOrder(orderDTO, null, async);
+        }
+        
+        IdempotencyStore.Claim claim;
         try {
-            Order createdOrder = orderService.createOrder(orderDTO);
-            return ResponseEntity.status(HttpStatus.CREATED).body(createdOrder);
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body("Error creating order: " + e.getMessage());
+            claim = idempotencyStore.claim(idempotencyKey, orderDTO);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         }
+        if (claim.getOutcome() == IdempotencyStore.Outcome.REPLAYED) {
+            return orderService.getOrderById(claim.getOrderId())
+                    .<ResponseEntity<?>>map(order -> placed(order)
+                            .header(IDEMPOTENT_REPLAYED_HEADER, "true")
+                            .body(order))
+                    .orElse(ResponseEntity.notFound().build());
+        }
+        if (claim.getOutcome() == IdempotencyStore.Outcome.IN_FLIGHT) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body("An order with this Idempotency-Key is still being placed");
+        }
+        if (claim.getOutcome() == IdempotencyStore.Outcome.MISMATCHED) {
+            return ResponseEntity.unprocessableEntity()
+                    .body("Idempotency-Key was already used for a different order");
+        }
+        return placeOrder(orderDTO, claim, async);
     }
     
+    // 409 while the order is waiting for its stock reservation, unless it is being cancelled
     @PutMapping("/{id}/status")
     public ResponseEntity<Order> updateOrderStatus(@PathVariable Long id, @RequestParam OrderStatus status) {
-        return orderService.updateOrderStatus(id, status)
-                .map(order -> ResponseEntity.ok(order))
-                .orElse(ResponseEntity.notFound().build());
+        try {
+            return orderService.updateOrderStatus(id, status)
+                    .map(order -> ResponseEntity.ok(order))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
     }
     
     @PutMapping("/{id}/cancel")
@@ -85,4 +147,46 @@ public class OrderController {
         Long count = orderService.getOrderCountByStatus(status);
         return ResponseEntity.ok(count);
     }
+    
+    // Counts per status plus the outcome of the last reconciliation against the orders table
+    @GetMapping("/counters")
+    public ResponseEntity<OrderCountersStatsDTO> getOrderCountersStats() {
+        return ResponseEntity.ok(orderService.getOrderCountersStats());
+    }
+    
+    // The order has committed by the time createOrder or acceptOrder returns, so it is safe to
+    // replay
+    private ResponseEntity<?> placeOrder(OrderDTO orderDTO, IdempotencyStore.Claim claim, boolean async) {
+        try {
+            Order createdOrder = async ? orderService.acceptOrder(orderDTO) : orderService.createOrder(orderDTO);
+            if (claim != null) {
+                idempotencyStore.complete(claim, createdOrder.getId());
+            }
+            return placed(createdOrder).body(createdOrder);
+        } catch (RuntimeException e) {
+            if (claim != null) {
+                idempotencyStore.release(claim);
+            }
+            return ResponseEntity.badRequest().body("Error creating order: " + e.getMessage());
+        }
+    }
+    
+    // An order accepted but not yet reserved is 202, pointing at where its outcome will show up
+    private ResponseEntity.BodyBuilder placed(Order order) {
+        if (!order.isReservationPending()) {
+            return ResponseEntity.status(HttpStatus.CREATED);
+        }
+        return ResponseEntity.accepted()
+                .header(HttpHeaders.LOCATION, "/api/orders/" + order.getId())
+                .header(PREFERENCE_APPLIED_HEADER, RESPOND_ASYNC);
+    }
+    
+    // A malformed cursor or page size is a client error
+    private ResponseEntity<CursorPageDTO<OrderSummaryDTO>> page(Supplier<CursorPageDTO<OrderSummaryDTO>> query) {
+        try {
+            return ResponseEntity.ok(query.get());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
 }
@@ -1,12 +1,16 @@
 package com.dio.challenge.storefront.controller;
 
+import com.dio.challenge.storefront.dto.CatalogCacheStatsDTO;
 import com.dio.challenge.storefront.dto.ProductDTO;
+import com.dio.challenge.storefront.service.ProductCatalogCache;
 import com.dio.challenge.storefront.service.WarehouseService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/storefront/products")
@@ -16,25 +20,36 @@ public class ProductController {
     @Autowired
     private WarehouseService warehouseService;
     
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+    
     @GetMapping
-    public ResponseEntity<List<ProductDTO>> getAllProducts() {
-        List<ProductDTO> products = warehouseService.getAllProducts();
-        return ResponseEntity.ok(products);
+    public ResponseEntity<List<ProductDTO>> getAllProducts(WebRequest request) {
+        return catalogListing(request, "all", productCatalogCache::getAllProducts);
     }
     
     @GetMapping("/{id}")
     public ResponseEntity<ProductDTO> getProductById(@PathVariable Long id) {
-        ProductDTO product = warehouseService.getProductById(id);
+        ProductDTO product = productCatalogCache.getProductById(id);
         if (product != null) {
             return ResponseEntity.ok(product);
         }
         return ResponseEntity.notFound().build();
     }
     
+    // Products for a view that shows many at once (cart, order history): ?ids=1,2,3
+    @GetMapping("/batch")
+    public ResponseEntity<List<ProductDTO>> getProductsByIds(@RequestParam List<Long> ids) {
+        try {
+            return ResponseEntity.ok(productCatalogCache.getProductsByIds(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     @GetMapping("/available")
-    public ResponseEntity<List<ProductDTO>> getAvailableProducts() {
-        List<ProductDTO> products = warehouseService.getAvailableProducts();
-        return ResponseEntity.ok(products);
+    public ResponseEntity<List<ProductDTO>> getAvailableProducts(WebRequest request) {
+        return catalogListing(request, "available", productCatalogCache::getAvailableProducts);
     }
     
     @GetMapping("/search")
@@ -45,7 +60,28 @@ public class ProductController {
     
     @GetMapping("/{id}/stock-check")
     public ResponseEntity<Boolean> checkStockAvailability(@PathVariable Long id, @RequestParam Integer quantity) {
-        boolean available = warehouseService.checkStockAvailability(id, quantity);
+        boolean available = productCatalogCache.checkStockAvailability(id, quantity);
         return ResponseEntity.ok(available);
     }
+    
+    @GetMapping("/cache/stats")
+    public ResponseEntity<CatalogCacheStatsDTO> getCacheStats() {
+        return ResponseEntity.ok(productCatalogCache.getStats());
+    }
+    
+    // While the cached catalog is fresh a matching If-None-Match is answered 304 without building
+    // the list. Otherwise the list is loaded and tagged only if nothing changed meanwhile; a
+    // matching tag still turns into a 304 on the way out
+    private ResponseEntity<List<ProductDTO>> catalogListing(WebRequest request, String variant,
+                                                            Supplier<List<ProductDTO>> load) {
+        String eTag = productCatalogCache.catalogETag(variant);
+        if (productCatalogCache.isFullCatalogFresh() && request.checkNotModified(eTag)) {
+            return null;
+        }
+        List<ProductDTO> products = load.get();
+        if (!eTag.equals(productCatalogCache.catalogETag(variant))) {
+            return ResponseEntity.ok(products);
+        }
+        return ResponseEntity.ok().eTag(eTag).body(products);
+    }
 }
@@ -0,0 +1,63 @@
+package com.dio.challenge.storefront.controller;
+
+import com.dio.challenge.storefront.dto.ProductSalesDTO;
+import com.dio.challenge.storefront.dto.SalesBucketDTO;
+import com.dio.challenge.storefront.dto.SalesSummaryDTO;
+import com.dio.challenge.storefront.model.SalesGranularity;
+import com.dio.challenge.storefront.service.SalesRollups;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Date-range sales reports answered from the pre-aggregated rollups; cancelled orders excluded
+@RestController
+@RequestMapping("/api/reports")
+@CrossOrigin(origins = "*")
+public class ReportController {
+    
+    private static final int MAX_TOP_PRODUCTS = 100;
+    
+    @Autowired
+    private SalesRollups salesRollups;
+    
+    // e.g. revenue per hour: /api/reports/sales?from=...&to=...&granularity=HOUR
+    @GetMapping("/sales")
+    public ResponseEntity<List<SalesBucketDTO>> getSalesSeries(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "HOUR") SalesGranularity granularity) {
+        return report(() -> salesRollups.getSeries(from, to, granularity));
+    }
+    
+    @GetMapping("/sales/summary")
+    public ResponseEntity<SalesSummaryDTO> getSalesSummary(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return report(() -> salesRollups.getSummary(from, to));
+    }
+    
+    @GetMapping("/products")
+    public ResponseEntity<List<ProductSalesDTO>> getTopProducts(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "20") Integer limit) {
+        if (limit < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        return report(() -> salesRollups.getTopProducts(from, to, Math.min(limit, MAX_TOP_PRODUCTS)));
+    }
+    
+    // An empty or oversized range is a client error
+    private <T> ResponseEntity<T> report(Supplier<T> query) {
+        try {
+            return ResponseEntity.ok(query.get());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
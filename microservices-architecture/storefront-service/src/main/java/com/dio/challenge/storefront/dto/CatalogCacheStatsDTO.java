@@ -0,0 +1,105 @@
+package com.dio.challenge.storefront.dto;
+
+public class CatalogCacheStatsDTO {
+    
+    private long size;
+    private long maxSize;
+    private long ttlSeconds;
+    private long hits;
+    private long misses;
+    private long expirations;
+    private long evictions;
+    private long fullReloads;
+    private long stockUpdatesApplied;
+    private long staleStockUpdates;
+    private boolean fullCatalogFresh;
+    
+    // Getters and Setters
+    public long getSize() {
+        return size;
+    }
+    
+    public void setSize(long size) {
+        this.size = size;
+    }
+    
+    public long getMaxSize() {
+        return maxSize;
+    }
+    
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+    
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+    
+    public void setTtlSeconds(long ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+    
+    public long getHits() {
+        return hits;
+    }
+    
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+    
+    public long getMisses() {
+        return misses;
+    }
+    
+    public void setMisses(long misses) {
+        this.misses = misses;
+    }
+    
+    public long getExpirations() {
+        return expirations;
+    }
+    
+    public void setExpirations(long expirations) {
+        this.expirations = expirations;
+    }
+    
+    public long getEvictions() {
+        return evictions;
+    }
+    
+    public void setEvictions(long evictions) {
+        this.evictions = evictions;
+    }
+    
+    public long getFullReloads() {
+        return fullReloads;
+    }
+    
+    public void setFullReloads(long fullReloads) {
+        this.fullReloads = fullReloads;
+    }
+    
+    public long getStockUpdatesApplied() {
+        return stockUpdatesApplied;
+    }
+    
+    public void setStockUpdatesApplied(long stockUpdatesApplied) {
+        this.stockUpdatesApplied = stockUpdatesApplied;
+    }
+    
+    public long getStaleStockUpdates() {
+        return staleStockUpdates;
+    }
+    
+    public void setStaleStockUpdates(long staleStockUpdates) {
+        this.staleStockUpdates = staleStockUpdates;
+    }
+    
+    public boolean isFullCatalogFresh() {
+        return fullCatalogFresh;
+    }
+    
+    public void setFullCatalogFresh(boolean fullCatalogFresh) {
+        this.fullCatalogFresh = fullCatalogFresh;
+    }
+}
@@ -0,0 +1,46 @@
+package com.dio.challenge.storefront.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CursorPageDTO<T> {
+    
+    private List<T> items = new ArrayList<>();
+    private String nextCursor;
+    private int limit;
+    
+    // Constructors
+    public CursorPageDTO() {}
+    
+    public CursorPageDTO(List<T> items, String nextCursor, int limit) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.limit = limit;
+    }
+    
+    // Getters and Setters
+    public List<T> getItems() {
+        return items;
+    }
+    
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+    
+    // Null on the last page
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+    
+    public int getLimit() {
+        return limit;
+    }
+    
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+}
@@ -0,0 +1,67 @@
+package com.dio.challenge.storefront.dto;
+
+import com.dio.challenge.storefront.model.OrderStatus;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public class OrderCountersStatsDTO {
+    
+    private Map<OrderStatus, Long> counts;
+    private long reconciliations;
+    private long skippedReconciliations;
+    private long driftsDetected;
+    private LocalDateTime lastReconciledAt;
+    
+    // Orders in the table minus orders counted, per status, at the last reconciliation
+    private Map<OrderStatus, Long> lastDrift;
+    
+    // Getters and Setters
+    public Map<OrderStatus, Long> getCounts() {
+        return counts;
+    }
+    
+    public void setCounts(Map<OrderStatus, Long> counts) {
+        this.counts = counts;
+    }
+    
+    public long getReconciliations() {
+        return reconciliations;
+    }
+    
+    public void setReconciliations(long reconciliations) {
+        this.reconciliations = reconciliations;
+    }
+    
+    public long getSkippedReconciliations() {
+        return skippedReconciliations;
+    }
+    
+    public void setSkippedReconciliations(long skippedReconciliations) {
+        this.skippedReconciliations = skippedReconciliations;
+    }
+    
+    public long getDriftsDetected() {
+        return driftsDetected;
+    }
+    
+    public void setDriftsDetected(long driftsDetected) {
+        this.driftsDetected = driftsDetected;
+    }
+    
+    public LocalDateTime getLastReconciledAt() {
+        return lastReconciledAt;
+    }
+    
+    public void setLastReconciledAt(LocalDateTime lastReconciledAt) {
+        this.lastReconciledAt = lastReconciledAt;
+    }
+    
+    public Map<OrderStatus, Long> getLastDrift() {
+        return lastDrift;
+    }
+    
+    public void setLastDrift(Map<OrderStatus, Long> lastDrift) {
+        this.lastDrift = lastDrift;
+    }
+}
@@ -0,0 +1,87 @@
+package com.dio.challenge.storefront.dto;
+
+public class OutboxStatsDTO {
+    
+    private long pendingEvents;
+    private long oldestPendingAgeMs;
+    private long publishedEvents;
+    private long failedEvents;
+    private long deadLetteredEvents;
+    private long batches;
+    private long lastBatchSize;
+    private double averageBatchSize;
+    private long lastBatchLagMs;
+    
+    // Getters and Setters
+    public long getPendingEvents() {
+        return pendingEvents;
+    }
+    
+    public void setPendingEvents(long pendingEvents) {
+        this.pendingEvents = pendingEvents;
+    }
+    
+    public long getOldestPendingAgeMs() {
+        return oldestPendingAgeMs;
+    }
+    
+    public void setOldestPendingAgeMs(long oldestPendingAgeMs) {
+        this.oldestPendingAgeMs = oldestPendingAgeMs;
+    }
+    
+    public long getPublishedEvents() {
+        return publishedEvents;
+    }
+    
+    public void setPublishedEvents(long publishedEvents) {
+        this.publishedEvents = publishedEvents;
+    }
+    
+    public long getFailedEvents() {
+        return failedEvents;
+    }
+    
+    public void setFailedEvents(long failedEvents) {
+        this.failedEvents = failedEvents;
+    }
+    
+    public long getDeadLetteredEvents() {
+        return deadLetteredEvents;
+    }
+    
+    public void setDeadLetteredEvents(long deadLetteredEvents) {
+        this.deadLetteredEvents = deadLetteredEvents;
+    }
+    
+    public long getBatches() {
+        return batches;
+    }
+    
+    public void setBatches(long batches) {
+        this.batches = batches;
+    }
+    
+    public long getLastBatchSize() {
+        return lastBatchSize;
+    }
+    
+    public void setLastBatchSize(long lastBatchSize) {
+        this.lastBatchSize = lastBatchSize;
+    }
+    
+    public double getAverageBatchSize() {
+        return averageBatchSize;
+    }
+    
+    public void setAverageBatchSize(double averageBatchSize) {
+        this.averageBatchSize = averageBatchSize;
+    }
+    
+    public long getLastBatchLagMs() {
+        return lastBatchLagMs;
+    }
+    
+    public void setLastBatchLagMs(long lastBatchLagMs) {
+        this.lastBatchLagMs = lastBatchLagMs;
+    }
+}
@@ -0,0 +1,44 @@
+package com.dio.challenge.storefront.dto;
+
+import java.math.BigDecimal;
+
+public class ProductSalesDTO {
+    
+    private Long productId;
+    private long units;
+    private BigDecimal revenue;
+    
+    // Constructors
+    public ProductSalesDTO() {}
+    
+    public ProductSalesDTO(Long productId, long units, BigDecimal revenue) {
+        this.productId = productId;
+        this.units = units;
+        this.revenue = revenue;
+    }
+    
+    // Getters and Setters
+    public Long getProductId() {
+        return productId;
+    }
+    
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+    
+    public long getUnits() {
+        return units;
+    }
+    
+    public void setUnits(long units) {
+        this.units = units;
+    }
+    
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+    
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+}
@@ -0,0 +1,55 @@
+package com.dio.challenge.storefront.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class SalesBucketDTO {
+    
+    private LocalDateTime bucketStart;
+    private long orderCount;
+    private BigDecimal revenue;
+    private long units;
+    
+    // Constructors
+    public SalesBucketDTO() {}
+    
+    public SalesBucketDTO(LocalDateTime bucketStart, long orderCount, BigDecimal revenue, long units) {
+        this.bucketStart = bucketStart;
+        this.orderCount = orderCount;
+        this.revenue = revenue;
+        this.units = units;
+    }
+    
+    // Getters and Setters
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+    
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+    
+    public long getOrderCount() {
+        return orderCount;
+    }
+    
+    public void setOrderCount(long orderCount) {
+        this.orderCount = orderCount;
+    }
+    
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+    
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+    
+    public long getUnits() {
+        return units;
+    }
+    
+    public void setUnits(long units) {
+        this.units = units;
+    }
+}
@@ -0,0 +1,78 @@
+package com.dio.challenge.storefront.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class SalesSummaryDTO {
+    
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private long orderCount;
+    private BigDecimal revenue;
+    private long units;
+    
+    // Pre-aggregated buckets merged to produce the totals
+    private long bucketsRead;
+    
+    // Constructors
+    public SalesSummaryDTO() {}
+    
+    public SalesSummaryDTO(LocalDateTime from, LocalDateTime to, long orderCount, BigDecimal revenue, long units,
+                           long bucketsRead) {
+        this.from = from;
+        this.to = to;
+        this.orderCount = orderCount;
+        this.revenue = revenue;
+        this.units = units;
+        this.bucketsRead = bucketsRead;
+    }
+    
+    // Getters and Setters
+    public LocalDateTime getFrom() {
+        return from;
+    }
+    
+    public void setFrom(LocalDateTime from) {
+        this.from = from;
+    }
+    
+    public LocalDateTime getTo() {
+        return to;
+    }
+    
+    public void setTo(LocalDateTime to) {
+        this.to = to;
+    }
+    
+    public long getOrderCount() {
+        return orderCount;
+    }
+    
+    public void setOrderCount(long orderCount) {
+        this.orderCount = orderCount;
+    }
+    
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+    
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+    
+    public long getUnits() {
+        return units;
+    }
+    
+    public void setUnits(long units) {
+        this.units = units;
+    }
+    
+    public long getBucketsRead() {
+        return bucketsRead;
+    }
+    
+    public void setBucketsRead(long bucketsRead) {
+        this.bucketsRead = bucketsRead;
+    }
+}
@@ -0,0 +1,167 @@
+package com.dio.challenge.storefront.dto;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+public class StockReservationResultDTO {
+    
+    private boolean reserved;
+    private List<ReservedItem> items = new ArrayList<>();
+    private List<ReservationFailure> failures = new ArrayList<>();
+    
+    // Constructors
+    public StockReservationResultDTO() {}
+    
+    public StockReservationResultDTO(boolean reserved, List<ReservedItem> items, List<ReservationFailure> failures) {
+        this.reserved = reserved;
+        this.items = items;
+        this.failures = failures;
+    }
+    
+    // Getters and Setters
+    public boolean isReserved() {
+        return reserved;
+    }
+    
+    public void setReserved(boolean reserved) {
+        this.reserved = reserved;
+    }
+    
+    public List<ReservedItem> getItems() {
+        return items;
+    }
+    
+    public void setItems(List<ReservedItem> items) {
+        this.items = items;
+    }
+    
+    public List<ReservationFailure> getFailures() {
+        return failures;
+    }
+    
+    public void setFailures(List<ReservationFailure> failures) {
+        this.failures = failures;
+    }
+    
+    // Inner class for priced and reserved lines
+    public static class ReservedItem {
+        private Long productId;
+        private String productName;
+        private Integer quantity;
+        private BigDecimal unitPrice;
+        private BigDecimal totalPrice;
+        private Integer remainingStock;
+        
+        public ReservedItem() {}
+        
+        public ReservedItem(Long productId, String productName, Integer quantity,
+                            BigDecimal unitPrice, Integer remainingStock) {
+            this.productId = productId;
+            this.productName = productName;
+            this.quantity = quantity;
+            this.unitPrice = unitPrice;
+            this.totalPrice = unitPrice.multiply(BigDecimal.valueOf(quantity));
+            this.remainingStock = remainingStock;
+        }
+        
+        // Getters and Setters
+        public Long getProductId() {
+            return productId;
+        }
+        
+        public void setProductId(Long productId) {
+            this.productId = productId;
+        }
+        
+        public String getProductName() {
+            return productName;
+        }
+        
+        public void setProductName(String productName) {
+            this.productName = productName;
+        }
+        
+        public Integer getQuantity() {
+            return quantity;
+        }
+        
+        public void setQuantity(Integer quantity) {
+            this.quantity = quantity;
+        }
+        
+        public BigDecimal getUnitPrice() {
+            return unitPrice;
+        }
+        
+        public void setUnitPrice(BigDecimal unitPrice) {
+            this.unitPrice = unitPrice;
+        }
+        
+        public BigDecimal getTotalPrice() {
+            return totalPrice;
+        }
+        
+        public void setTotalPrice(BigDecimal totalPrice) {
+            this.totalPrice = totalPrice;
+        }
+        
+        public Integer getRemainingStock() {
+            return remainingStock;
+        }
+        
+        public void setRemainingStock(Integer remainingStock) {
+            this.remainingStock = remainingStock;
+        }
+    }
+    
+    // Inner class for lines that could not be reserved
+    public static class ReservationFailure {
+        private Long productId;
+        private Integer requestedQuantity;
+        private Integer availableQuantity;
+        private String reason;
+        
+        public ReservationFailure() {}
+        
+        public ReservationFailure(Long productId, Integer requestedQuantity, Integer availableQuantity, String reason) {
+            this.productId = productId;
+            this.requestedQuantity = requestedQuantity;
+            this.availableQuantity = availableQuantity;
+            this.reason = reason;
+        }
+        
+        // Getters and Setters
+        public Long getProductId() {
+            return productId;
+        }
+        
+        public void setProductId(Long productId) {
+            this.productId = productId;
+        }
+        
+        public Integer getRequestedQuantity() {
+            return requestedQuantity;
+        }
+        
+        public void setRequestedQuantity(Integer requestedQuantity) {
+            this.requestedQuantity = requestedQuantity;
+        }
+        
+        public Integer getAvailableQuantity() {
+            return availableQuantity;
+        }
+        
+        public void setAvailableQuantity(Integer availableQuantity) {
+            this.availableQuantity = availableQuantity;
+        }
+        
+        public String getReason() {
+            return reason;
+        }
+        
+        public void setReason(String reason) {
+            this.reason = reason;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.dio.challenge.storefront.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -13,8 +14,11 @@ import java.util.List;
 @Table(name = "orders")
 public class Order {
     
+    // From a sequence, in blocks of 50 (pooled optimizer), so ids are known before the INSERT and
+    // an order and its items are written in JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank(message = "Customer name is required")
@@ -37,6 +41,16 @@ public class Order {
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<OrderItem> items = new ArrayList<>();
     
+    // Accepted asynchronously and still waiting for its stock reservation; prices are provisional
+    // until then
+    @Column(name = "reservation_pending", nullable = false)
+    private boolean reservationPending = false;
+    
+    // Sent as the Idempotency-Key of every attempt to reserve this order's stock
+    @JsonIgnore
+    @Column(name = "reservation_key", length = 36)
+    private String reservationKey;
+    
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
@@ -112,6 +126,22 @@ public class Order {
         this.items = items;
     }
     
+    public boolean isReservationPending() {
+        return reservationPending;
+    }
+    
+    public void setReservationPending(boolean reservationPending) {
+        this.reservationPending = reservationPending;
+    }
+    
+    public String getReservationKey() {
+        return reservationKey;
+    }
+    
+    public void setReservationKey(String reservationKey) {
+        this.reservationKey = reservationKey;
+    }
+    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
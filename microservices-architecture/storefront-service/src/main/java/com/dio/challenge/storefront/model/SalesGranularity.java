@@ -0,0 +1,37 @@
+package com.dio.challenge.storefront.model;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+// Bucket sizes of the sales rollups, finest first
+public enum SalesGranularity {
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+    
+    private final ChronoUnit unit;
+    
+    SalesGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+    
+    // Start of the bucket holding the given time
+    public LocalDateTime bucketOf(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+    
+    // Start of the first bucket at or after the given time
+    public LocalDateTime ceil(LocalDateTime time) {
+        LocalDateTime start = bucketOf(time);
+        return start.equals(time) ? start : next(start);
+    }
+    
+    public LocalDateTime next(LocalDateTime bucketStart) {
+        return bucketStart.plus(1, unit);
+    }
+    
+    // Buckets from the one starting at bucketStart up to the one holding end (exclusive)
+    public long bucketsBetween(LocalDateTime bucketStart, LocalDateTime end) {
+        return unit.between(bucketStart, ceil(end));
+    }
+}
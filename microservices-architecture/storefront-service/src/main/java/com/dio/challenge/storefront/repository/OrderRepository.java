@@ -1,25 +1,86 @@
 package com.dio.challenge.storefront.repository;
 
+import com.dio.challenge.storefront.dto.OrderLineDTO;
+import com.dio.challenge.storefront.dto.OrderSummaryDTO;
 import com.dio.challenge.storefront.model.Order;
 import com.dio.challenge.storefront.model.OrderStatus;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
     
-    List<Order> findByCustomerEmailOrderByCreatedAtDesc(String customerEmail);
+    // Order columns only; lines are loaded for a whole page at once with findLinesByOrderIds
+    String ORDER_SUMMARY = "SELECT new com.dio.challenge.storefront.dto.OrderSummaryDTO(o.id, o.customerName, " +
+            "o.customerEmail, o.totalAmount, o.status, o.createdAt, o.updatedAt) FROM Order o ";
+    
+    // Entity variants that fetch the items in the same statement as the order
+    @EntityGraph(attributePaths = "items")
+    Optional<Order> findWithItemsById(Long id);
+    
+    @EntityGraph(attributePaths = "items")
+    List<Order> findWithItemsByIdIn(Collection<Long> ids);
+    
+    // Asynchronously accepted orders still waiting for their stock reservation, oldest first
+    @Query("SELECT o.id FROM Order o WHERE o.reservationPending = true ORDER BY o.id")
+    List<Long> findReservationPendingIds(Pageable pageable);
+    
+    // Takes an order's pending reservation for whoever gets there first, the acceptance worker
+    // applying its outcome or a cancellation. 0 means the other one already has it; the row stays
+    // locked until the caller's transaction ends, so only one of them acts on the order
+    @Modifying
+    @Query("UPDATE Order o SET o.reservationPending = false WHERE o.id = :id AND o.reservationPending = true")
+    int claimReservation(@Param("id") Long id);
+    
+    // Keyset pages, newest first: each page starts strictly after the (createdAt, id) of the
+    // previous page's last row, and the Pageable only carries the LIMIT
+    @Query(ORDER_SUMMARY + "WHERE o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id) " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummaryDTO> findPageAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @Query(ORDER_SUMMARY + "WHERE o.customerEmail = :customerEmail " +
+            "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummaryDTO> findPageByCustomerEmailAfter(@Param("customerEmail") String customerEmail,
+                                             @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                                             Pageable pageable);
+    
+    @Query(ORDER_SUMMARY + "WHERE o.status = :status " +
+            "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummaryDTO> findPageByStatusAfter(@Param("status") OrderStatus status,
+                                      @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                                      Pageable pageable);
     
-    List<Order> findByStatusOrderByCreatedAtDesc(OrderStatus status);
+    @Query(ORDER_SUMMARY + "WHERE o.createdAt BETWEEN :startDate AND :endDate " +
+            "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummaryDTO> findPageByDateRangeAfter(@Param("startDate") LocalDateTime startDate,
+                                         @Param("endDate") LocalDateTime endDate,
+                                         @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                                         Pageable pageable);
     
-    @Query("SELECT o FROM Order o WHERE o.createdAt BETWEEN :startDate AND :endDate ORDER BY o.createdAt DESC")
-    List<Order> findOrdersByDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    // Cursor-backed stream for NDJSON exports; must be consumed inside a transaction and closed
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(ORDER_SUMMARY + "ORDER BY o.createdAt DESC, o.id DESC")
+    Stream<OrderSummaryDTO> streamAll();
     
-    @Query("SELECT COUNT(o) FROM Order o WHERE o.status = :status")
-    Long countByStatus(@Param("status") OrderStatus status);
+    @Query("SELECT new com.dio.challenge.storefront.dto.OrderLineDTO(i.id, i.order.id, i.productId, i.productName, " +
+            "i.quantity, i.unitPrice, i.totalPrice) FROM OrderItem i WHERE i.order.id IN :orderIds ORDER BY i.id")
+    List<OrderLineDTO> findLinesByOrderIds(@Param("orderIds") Collection<Long> orderIds);
 }
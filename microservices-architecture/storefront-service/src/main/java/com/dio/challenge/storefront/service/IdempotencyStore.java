@@ -0,0 +1,165 @@
+package com.dio.challenge.storefront.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Idempotency-Key bookkeeping for order submission. The first request with a key claims it and
+// places the order; while it runs, duplicates are turned away, and once it has committed they get
+// the order's current state back without touching the warehouse. A key is bound to the request
+// body it was first used with. Keys live in memory only, so a restart or another instance does not
+// see them. Completed keys are bounded and expiring and remember only the order id; claims still
+// in flight are kept apart, where the size bound cannot evict them and let a duplicate through.
+// A failed order frees its key for a retry.
+@Service
+public class IdempotencyStore {
+    
+    public static final int MAX_KEY_LENGTH = 255;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${orders.idempotency.max-keys:10000}")
+    private long maxKeys;
+    
+    @Value("${orders.idempotency.ttl-seconds:86400}")
+    private long ttlSeconds;
+    
+    private Cache<String, Entry> completed;
+    private final Map<String, Entry> inFlight = new ConcurrentHashMap<>();
+    private final Map<Outcome, Counter> outcomes = new EnumMap<>(Outcome.class);
+    
+    @PostConstruct
+    void init() {
+        completed = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, Counter.builder("orders.idempotency")
+                    .description("Order submissions carrying an Idempotency-Key, by what the key resolved to")
+                    .tag("outcome", outcome.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        Gauge.builder("orders.idempotency.keys", this, store -> store.completed.estimatedSize() + store.inFlight.size())
+                .description("Idempotency keys remembered")
+                .register(meterRegistry);
+    }
+    
+    public Claim claim(String key, Object request) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        Entry claimed = new Entry(fingerprint(request), null);
+        Claim claim = resolve(key, claimed, completed.getIfPresent(key));
+        if (claim == null) {
+            Entry existing = inFlight.putIfAbsent(key, claimed);
+            if (existing != null) {
+                claim = resolve(key, claimed, existing);
+            } else {
+                // complete() adds the key before dropping its claim, so one that finished since
+                // the first look is in the cache now
+                claim = resolve(key, claimed, completed.getIfPresent(key));
+                if (claim != null) {
+                    inFlight.remove(key, claimed);
+                } else {
+                    claim = new Claim(Outcome.CLAIMED, key, claimed);
+                }
+            }
+        }
+        outcomes.get(claim.outcome).increment();
+        return claim;
+    }
+    
+    // The order has committed; later requests with the key replay it
+    public void complete(Claim claim, Long orderId) {
+        completed.put(claim.key, new Entry(claim.entry.fingerprint, orderId));
+        inFlight.remove(claim.key, claim.entry);
+    }
+    
+    public void release(Claim claim) {
+        inFlight.remove(claim.key, claim.entry);
+    }
+    
+    // Null when nobody holds the key
+    private static Claim resolve(String key, Entry claimed, Entry existing) {
+        if (existing == null) {
+            return null;
+        }
+        if (!existing.fingerprint.equals(claimed.fingerprint)) {
+            return new Claim(Outcome.MISMATCHED, key, existing);
+        }
+        return new Claim(existing.orderId == null ? Outcome.IN_FLIGHT : Outcome.REPLAYED, key, existing);
+    }
+    
+    private String fingerprint(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not fingerprint the request", e);
+        }
+    }
+    
+    public enum Outcome {
+        // First use of the key: the caller places the order
+        CLAIMED,
+        // Same key and body as a committed order
+        REPLAYED,
+        // Same key and body as an order still being placed
+        IN_FLIGHT,
+        // Key already used with a different body
+        MISMATCHED
+    }
+    
+    public static class Claim {
+        private final Outcome outcome;
+        private final String key;
+        private final Entry entry;
+        
+        private Claim(Outcome outcome, String key, Entry entry) {
+            this.outcome = outcome;
+            this.key = key;
+            this.entry = entry;
+        }
+        
+        // Getters
+        public Outcome getOutcome() {
+            return outcome;
+        }
+        
+        // Set when REPLAYED; the order is read again, so a replay shows its current state
+        public Long getOrderId() {
+            return entry.orderId;
+        }
+    }
+    
+    private static class Entry {
+        private final String fingerprint;
+        private final Long orderId;
+        
+        private Entry(String fingerprint, Long orderId) {
+            this.fingerprint = fingerprint;
+            this.orderId = orderId;
+        }
+    }
+}
@@ -1,21 +1,90 @@
 package com.dio.challenge.storefront.service;
 
-import com.dio.challenge.storefront.dto.OrderCreatedMessage;
+import com.dio.challenge.storefront.dto.LowStockAlertMessage;
+import com.dio.challenge.storefront.dto.StockUpdateMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Service
 public class MessageListener {
     
-    @RabbitListener(queues = "stock.update.queue")
-    public void handleStockUpdate(Object stockUpdateMessage) {
-        System.out.println("Received stock update in storefront: " + stockUpdateMessage);
-        // Process stock update - could update local cache, notify customers, etc.
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private DistributionSummary stockUpdateBatchSizes;
+    private Timer stockUpdateBatchTimer;
+    private Counter stockUpdatesApplied;
+    private Counter stockUpdatesConflated;
+    
+    // stock.update.messages{result} over time is the consumer's throughput; conflated ones were
+    // superseded by a later update for the same product in the same batch
+    @PostConstruct
+    void registerMetrics() {
+        stockUpdateBatchSizes = DistributionSummary.builder("stock.update.batch.size")
+                .description("Stock update messages per consumed batch")
+                .register(meterRegistry);
+        stockUpdateBatchTimer = Timer.builder("stock.update.batch")
+                .description("Time to apply a batch of stock updates to the catalog cache")
+                .register(meterRegistry);
+        stockUpdatesApplied = Counter.builder("stock.update.messages")
+                .description("Stock update messages consumed, by whether they were applied or superseded")
+                .tag("result", "applied")
+                .register(meterRegistry);
+        stockUpdatesConflated = Counter.builder("stock.update.messages")
+                .description("Stock update messages consumed, by whether they were applied or superseded")
+                .tag("result", "conflated")
+                .register(meterRegistry);
+    }
+    
+    // Only the latest stock per product in the batch matters, so earlier updates for the same
+    // product are dropped before touching the cache
+    @RabbitListener(queues = "stock.update.queue", containerFactory = "stockUpdateListenerContainerFactory")
+    public void handleStockUpdates(List<StockUpdateMessage> stockUpdateMessages) {
+        System.out.println("Received " + stockUpdateMessages.size() + " stock updates in storefront");
+        stockUpdateBatchSizes.record(stockUpdateMessages.size());
+        stockUpdateBatchTimer.record(() -> {
+            Map<Long, StockUpdateMessage> latest = conflate(stockUpdateMessages);
+            latest.values().forEach(stockUpdateMessage -> productCatalogCache.applyStockUpdate(
+                    stockUpdateMessage.getProductId(),
+                    stockUpdateMessage.getCurrentStock(),
+                    stockUpdateMessage.getTimestamp()
+            ));
+            stockUpdatesApplied.increment(latest.size());
+            stockUpdatesConflated.increment(stockUpdateMessages.size() - latest.size());
+        });
     }
     
     @RabbitListener(queues = "low.stock.alert.queue")
-    public void handleLowStockAlert(Object lowStockAlertMessage) {
-        System.out.println("Received low stock alert in storefront: " + lowStockAlertMessage);
-        // Process low stock alert - could notify customers, remove from featured products, etc.
+    public void handleLowStockAlert(LowStockAlertMessage lowStockAlertMessage) {
+        System.out.println("Received low stock alert in storefront: " + lowStockAlertMessage.getProductName());
+        productCatalogCache.applyStockUpdate(
+                lowStockAlertMessage.getProductId(),
+                lowStockAlertMessage.getCurrentStock(),
+                lowStockAlertMessage.getTimestamp()
+        );
+    }
+    
+    // Messages arrive in publish order, so a later one wins unless its timestamp says otherwise
+    private static Map<Long, StockUpdateMessage> conflate(List<StockUpdateMessage> stockUpdateMessages) {
+        Map<Long, StockUpdateMessage> latest = new LinkedHashMap<>();
+        for (StockUpdateMessage stockUpdateMessage : stockUpdateMessages) {
+            latest.merge(stockUpdateMessage.getProductId(), stockUpdateMessage, (previous, next) ->
+                    next.getTimestamp() != null && previous.getTimestamp() != null
+                            && next.getTimestamp().isBefore(previous.getTimestamp()) ? previous : next);
+        }
+        return latest;
     }
 }
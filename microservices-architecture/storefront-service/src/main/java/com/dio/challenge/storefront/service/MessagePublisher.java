@@ -2,32 +2,48 @@ package com.dio.challenge.storefront.service;
 
 import com.dio.challenge.storefront.config.RabbitMQConfig;
 import com.dio.challenge.storefront.dto.OrderCreatedMessage;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import com.dio.challenge.storefront.model.OutboxEvent;
+import com.dio.challenge.storefront.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+// Events are written to the outbox in the caller's transaction and published by OutboxRelay,
+// so a rollback never leaves a published event behind and the broker is off the request path
 @Service
+@Transactional(propagation = Propagation.MANDATORY)
 public class MessagePublisher {
     
     @Autowired
-    private RabbitTemplate rabbitTemplate;
+    private OutboxEventRepository outboxEventRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
     
     public void publishOrderCreated(OrderCreatedMessage message) {
-        rabbitTemplate.convertAndSend(
-                RabbitMQConfig.ORDER_EXCHANGE,
-                RabbitMQConfig.ORDER_CREATED_ROUTING_KEY,
-                message
-        );
-        System.out.println("Published order created message: Order ID " + message.getOrderId());
+        enqueue(RabbitMQConfig.ORDER_EXCHANGE, RabbitMQConfig.ORDER_CREATED_ROUTING_KEY, message);
+        System.out.println("Queued order created message: Order ID " + message.getOrderId());
     }
     
     public void publishOrderStatusUpdate(Long orderId, String oldStatus, String newStatus) {
         String message = String.format("Order %d status changed from %s to %s", orderId, oldStatus, newStatus);
-        rabbitTemplate.convertAndSend(
-                RabbitMQConfig.ORDER_EXCHANGE,
-                RabbitMQConfig.ORDER_STATUS_UPDATE_ROUTING_KEY,
-                message
-        );
-        System.out.println("Published order status update: " + message);
+        enqueue(RabbitMQConfig.ORDER_EXCHANGE, RabbitMQConfig.ORDER_STATUS_UPDATE_ROUTING_KEY, message);
+        System.out.println("Queued order status update: " + message);
+    }
+    
+    private void enqueue(String exchange, String routingKey, Object message) {
+        try {
+            outboxEventRepository.save(new OutboxEvent(
+                    exchange,
+                    routingKey,
+                    message.getClass().getName(),
+                    objectMapper.writeValueAsString(message)
+            ));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + message.getClass().getSimpleName(), e);
+        }
     }
 }
@@ -0,0 +1,90 @@
+package com.dio.challenge.storefront.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Ids of asynchronously accepted orders waiting for an acceptance worker. The orders table is
+// the source of truth (reservation_pending), so the queue is only a fast path: an id that does
+// not fit, or whose attempt failed, is queued again by the worker's next sweep. An order is never
+// queued twice at once.
+@Component
+public class OrderAcceptanceQueue {
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${orders.async.queue-capacity:10000}")
+    private int capacity;
+    
+    private BlockingQueue<Long> queue;
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+    
+    @PostConstruct
+    void init() {
+        queue = new LinkedBlockingQueue<>(capacity);
+        Gauge.builder("orders.async.queue.size", queue, BlockingQueue::size)
+                .description("Accepted orders waiting for an acceptance worker")
+                .register(meterRegistry);
+    }
+    
+    // The order only becomes visible to the worker once its row has committed
+    public void enqueueAfterCommit(Long orderId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            offer(orderId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                offer(orderId);
+            }
+        });
+    }
+    
+    public boolean offer(Long orderId) {
+        if (!queued.add(orderId)) {
+            return false;
+        }
+        if (!queue.offer(orderId)) {
+            queued.remove(orderId);
+            return false;
+        }
+        return true;
+    }
+    
+    // Waits up to timeoutMs for one id, then takes whatever else is queued, up to max
+    public List<Long> take(int max, long timeoutMs) throws InterruptedException {
+        Long first = queue.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return List.of();
+        }
+        List<Long> batch = new ArrayList<>(max);
+        batch.add(first);
+        queue.drainTo(batch, max - 1);
+        return batch;
+    }
+    
+    // The batch has been handled, successfully or not; its ids may be queued again
+    public void done(Collection<Long> orderIds) {
+        queued.removeAll(orderIds);
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,213 @@
+package com.dio.challenge.storefront.service;
+
+import com.dio.challenge.storefront.dto.OrderItemDTO;
+import com.dio.challenge.storefront.dto.StockReservationResultDTO;
+import com.dio.challenge.storefront.model.Order;
+import com.dio.challenge.storefront.repository.OrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Reserves stock for asynchronously accepted orders. Each worker takes a batch of ids from the
+// queue, reserves every order in it concurrently (one warehouse call per order), and applies the
+// answers in one transaction. An order whose reservation call failed stays pending and is picked
+// up again by the sweep, which also requeues what was pending when the service last stopped.
+// Every attempt carries the order's reservation key, so a retry of a call the warehouse did apply
+// gets that reservation back rather than a second one. Stock reserved for an order cancelled in
+// the meantime, or for a batch whose answers could not be applied, is released by that key, so
+// the warehouse forgets the reservation in the same step as it takes the stock back.
+@Component
+public class OrderAcceptanceWorker {
+    
+    @Autowired
+    private OrderAcceptanceQueue queue;
+    
+    @Autowired
+    private OrderService orderService;
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private ReactiveWarehouseService reactiveWarehouseService;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${orders.async.workers:2}")
+    private int workers;
+    
+    @Value("${orders.async.batch-size:50}")
+    private int batchSize;
+    
+    @Value("${orders.async.max-concurrency:16}")
+    private int maxConcurrency;
+    
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+    
+    private Timer batchTimer;
+    private Timer decisionLag;
+    private Counter reserved;
+    private Counter rejected;
+    private Counter retried;
+    
+    @PostConstruct
+    void registerMetrics() {
+        batchTimer = Timer.builder("orders.async.batch")
+                .description("Time to reserve stock for a batch of accepted orders and apply the answers")
+                .register(meterRegistry);
+        decisionLag = Timer.builder("orders.async.decision.lag")
+                .description("Time from accepting an order to knowing whether its stock is reserved")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        reserved = processed("reserved");
+        rejected = processed("rejected");
+        retried = processed("retried");
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            Thread thread = new Thread(this::work, "order-acceptance-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        sweep();
+    }
+    
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+    }
+    
+    // Requeues pending orders the queue does not hold: ones that did not fit, whose reservation
+    // call failed, or that were accepted before a restart
+    @Scheduled(fixedDelayString = "${orders.async.sweep-interval-ms:5000}",
+            initialDelayString = "${orders.async.sweep-interval-ms:5000}")
+    public void sweep() {
+        if (!running) {
+            return;
+        }
+        for (Long orderId : orderRepository.findReservationPendingIds(PageRequest.ofSize(queue.getCapacity()))) {
+            queue.offer(orderId);
+        }
+    }
+    
+    private void work() {
+        while (running) {
+            List<Long> orderIds;
+            try {
+                orderIds = queue.take(batchSize, 1000);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (orderIds.isEmpty()) {
+                continue;
+            }
+            try {
+                batchTimer.record(() -> process(orderIds));
+            } catch (RuntimeException e) {
+                // The orders are still pending; the next sweep retries them
+                retried.increment(orderIds.size());
+            } finally {
+                queue.done(orderIds);
+            }
+        }
+    }
+    
+    private void process(List<Long> orderIds) {
+        List<Order> orders = orderService.getReservationPendingOrders(orderIds);
+        if (orders.isEmpty()) {
+            return;
+        }
+        Map<Long, StockReservationResultDTO> reservations = Flux.fromIterable(orders)
+                .flatMap(order -> reactiveWarehouseService.reserveStock(lines(order), order.getReservationKey())
+                        .map(reservation -> Map.entry(order.getId(), reservation))
+                        // Left pending for the next sweep
+                        .onErrorResume(e -> Mono.empty()), maxConcurrency)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .block();
+        retried.increment(orders.size() - reservations.size());
+        if (reservations.isEmpty()) {
+            return;
+        }
+        
+        Map<Long, String> reservationKeys = new HashMap<>();
+        for (Order order : orders) {
+            reservationKeys.put(order.getId(), order.getReservationKey());
+        }
+        List<Long> unclaimed;
+        try {
+            unclaimed = orderService.completeReservations(reservations);
+        } catch (RuntimeException e) {
+            // Nothing was applied, so the orders are retried. A released reservation is made
+            // afresh then; one whose release failed is still recorded and comes back as it was
+            reservations.forEach((orderId, reservation) -> {
+                if (reservation.isReserved()) {
+                    release(reservationKeys.get(orderId));
+                }
+            });
+            throw e;
+        }
+        unclaimed.forEach(orderId -> release(reservationKeys.get(orderId)));
+        
+        LocalDateTime now = LocalDateTime.now();
+        for (Order order : orders) {
+            StockReservationResultDTO reservation = reservations.get(order.getId());
+            if (reservation == null) {
+                continue;
+            }
+            (reservation.isReserved() ? reserved : rejected).increment();
+            decisionLag.record(Duration.between(order.getCreatedAt(), now));
+        }
+    }
+    
+    // A failed release is logged and the rest still go out
+    private void release(String reservationKey) {
+        try {
+            reactiveWarehouseService.releaseReservation(reservationKey).block();
+        } catch (RuntimeException e) {
+            System.out.println("Could not release stock reservation " + reservationKey + ": " + e.getMessage());
+        }
+    }
+    
+    private static List<OrderItemDTO> lines(Order order) {
+        return order.getItems().stream()
+                .map(item -> new OrderItemDTO(item.getProductId(), item.getQuantity()))
+                .toList();
+    }
+    
+    private Counter processed(String outcome) {
+        return Counter.builder("orders.async.processed")
+                .description("Accepted orders handled by the acceptance workers, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
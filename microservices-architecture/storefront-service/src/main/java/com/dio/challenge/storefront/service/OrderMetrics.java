@@ -0,0 +1,83 @@
+package com.dio.challenge.storefront.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Timers for order placement: orders.create for the whole call by outcome, and
+// orders.create.phase for each step of it. The warehouse validates, prices and reserves every line
+// in one call, so those three show up as the single reservation phase; pricing is building the
+// order lines and total from its answer. Commit is timed too, as it is where the outbox and order
+// rows are actually written.
+@Component
+public class OrderMetrics {
+    
+    public static final String RESERVATION = "reservation";
+    public static final String PRICING = "pricing";
+    public static final String PERSISTENCE = "persistence";
+    public static final String PUBLISH = "publish";
+    public static final String COMMIT = "commit";
+    
+    public static final String CREATED = "created";
+    public static final String REJECTED = "rejected";
+    public static final String FAILED = "failed";
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private final Map<String, Timer> phases = new HashMap<>();
+    private final Map<String, Timer> outcomes = new HashMap<>();
+    
+    @PostConstruct
+    void init() {
+        for (String phase : new String[]{RESERVATION, PRICING, PERSISTENCE, PUBLISH, COMMIT}) {
+            phases.put(phase, Timer.builder("orders.create.phase")
+                    .description("Time spent in each phase of placing an order")
+                    .tag("phase", phase)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        for (String outcome : new String[]{CREATED, REJECTED, FAILED}) {
+            outcomes.put(outcome, Timer.builder("orders.create")
+                    .description("Time to place an order, commit included")
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+    
+    // Records the phase that began at startNanos and returns the current time, where the next
+    // phase begins
+    public long phase(String phase, long startNanos) {
+        long now = System.nanoTime();
+        phases.get(phase).record(now - startNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+    
+    // Called once the order is built and published; the outcome is only known after commit
+    public void completed(long startNanos, long commitStartNanos) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            outcome(CREATED, startNanos);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                phase(COMMIT, commitStartNanos);
+                outcome(status == STATUS_COMMITTED ? CREATED : FAILED, startNanos);
+            }
+        });
+    }
+    
+    public void outcome(String outcome, long startNanos) {
+        outcomes.get(outcome).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -1,22 +1,45 @@
 package com.dio.challenge.storefront.service;
 
+import com.dio.challenge.storefront.dto.CursorPageDTO;
+import com.dio.challenge.storefront.dto.OrderCountersStatsDTO;
+import com.dio.challenge.storefront.dto.OrderCreatedMessage;
 import com.dio.challenge.storefront.dto.OrderDTO;
 import com.dio.challenge.storefront.dto.OrderItemDTO;
+import com.dio.challenge.storefront.dto.OrderLineDTO;
+import com.dio.challenge.storefront.dto.OrderSummaryDTO;
+import com.dio.challenge.storefront.dto.PageCursor;
 import com.dio.challenge.storefront.dto.ProductDTO;
+import com.dio.challenge.storefront.dto.StockReservationResultDTO;
 import com.dio.challenge.storefront.model.Order;
 import com.dio.challenge.storefront.model.OrderItem;
 import com.dio.challenge.storefront.model.OrderStatus;
 import com.dio.challenge.storefront.repository.OrderRepository;
-import com.dio.challenge.storefront.messaging.MessagePublisher;
-import com.dio.challenge.storefront.messaging.OrderCreatedMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -31,126 +54,418 @@ public class OrderService {
     @Autowired
     private MessagePublisher messagePublisher;
     
-    public List<Order> getAllOrders() {
-        return orderRepository.findAll();
+    @Autowired
+    private OrderStatusCounters orderStatusCounters;
+    
+    @Autowired
+    private SalesRollups salesRollups;
+    
+    @Autowired
+    private OrderMetrics orderMetrics;
+    
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+    
+    @Autowired
+    private OrderAcceptanceQueue orderAcceptanceQueue;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Value("${pagination.default-page-size:50}")
+    private int defaultPageSize;
+    
+    @Value("${pagination.max-page-size:500}")
+    private int maxPageSize;
+    
+    // Orders written per NDJSON export chunk; each chunk costs one query for its lines
+    private static final int EXPORT_CHUNK_SIZE = 500;
+    
+    // Newest-first pages start below any real (createdAt, id)
+    private static final PageCursor FIRST_PAGE = new PageCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+    
+    @Transactional(readOnly = true)
+    public CursorPageDTO<OrderSummaryDTO> getOrders(String cursor, Integer limit) {
+        return page(cursor, limit, (after, pageable) ->
+                orderRepository.findPageAfter(after.getCreatedAt(), after.getId(), pageable));
     }
     
+    @Transactional(readOnly = true)
     public Optional<Order> getOrderById(Long id) {
-        return orderRepository.findById(id);
+        return orderRepository.findWithItemsById(id);
+    }
+    
+    @Transactional(readOnly = true)
+    public CursorPageDTO<OrderSummaryDTO> getOrdersByCustomerEmail(String customerEmail, String cursor, Integer limit) {
+        return page(cursor, limit, (after, pageable) ->
+                orderRepository.findPageByCustomerEmailAfter(customerEmail, after.getCreatedAt(), after.getId(), pageable));
     }
     
-    public List<Order> getOrdersByCustomerEmail(String customerEmail) {
-        return orderRepository.findByCustomerEmailOrderByCreatedAtDesc(customerEmail);
+    @Transactional(readOnly = true)
+    public CursorPageDTO<OrderSummaryDTO> getOrdersByStatus(OrderStatus status, String cursor, Integer limit) {
+        return page(cursor, limit, (after, pageable) ->
+                orderRepository.findPageByStatusAfter(status, after.getCreatedAt(), after.getId(), pageable));
     }
     
-    public List<Order> getOrdersByStatus(OrderStatus status) {
-        return orderRepository.findByStatusOrderByCreatedAtDesc(status);
+    @Transactional(readOnly = true)
+    public CursorPageDTO<OrderSummaryDTO> getOrdersByDateRange(LocalDateTime startDate, LocalDateTime endDate,
+                                                               String cursor, Integer limit) {
+        return page(cursor, limit, (after, pageable) ->
+                orderRepository.findPageByDateRangeAfter(startDate, endDate, after.getCreatedAt(), after.getId(), pageable));
     }
     
-    public List<Order> getOrdersByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return orderRepository.findOrdersByDateRange(startDate, endDate);
+    // Writes every order as one JSON line. Orders are read as unmanaged projections and written in
+    // chunks, so memory stays flat however many orders there are
+    @Transactional(readOnly = true)
+    public long exportOrders(OutputStream out) throws IOException {
+        long written = 0;
+        List<OrderSummaryDTO> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+        try (Stream<OrderSummaryDTO> orders = orderRepository.streamAll()) {
+            for (OrderSummaryDTO order : (Iterable<OrderSummaryDTO>) orders::iterator) {
+                chunk.add(order);
+                if (chunk.size() == EXPORT_CHUNK_SIZE) {
+                    written += writeChunk(chunk, out);
+                }
+            }
+        }
+        written += writeChunk(chunk, out);
+        return written;
     }
     
     public Order createOrder(OrderDTO orderDTO) {
-        // Validate stock availability for all items
-        for (OrderItemDTO itemDTO : orderDTO.getItems()) {
-            boolean stockAvailable = warehouseService.checkStockAvailability(itemDTO.getProductId(), itemDTO.getQuantity());
-            if (!stockAvailable) {
-                throw new RuntimeException("Insufficient stock for product ID: " + itemDTO.getProductId());
+        long started = System.nanoTime();
+        String outcome = OrderMetrics.FAILED;
+        try {
+            // Check, price and reserve every line in a single warehouse call
+            StockReservationResultDTO reservation = warehouseService.reserveStock(orderDTO.getItems());
+            if (reservation == null) {
+                throw new RuntimeException("Stock reservation failed: empty response from warehouse");
+            }
+            if (!reservation.isReserved()) {
+                String productIds = reservation.getFailures().stream()
+                        .map(failure -> String.valueOf(failure.getProductId()))
+                        .collect(Collectors.joining(", "));
+                outcome = OrderMetrics.REJECTED;
+                throw new RuntimeException("Insufficient stock for product ID: " + productIds);
             }
+            long phaseStart = orderMetrics.phase(OrderMetrics.RESERVATION, started);
+            giveBackOnRollback(reservation);
+            
+            // Create order
+            Order order = new Order();
+            order.setCustomerName(orderDTO.getCustomerName());
+            order.setCustomerEmail(orderDTO.getCustomerEmail());
+            order.setStatus(OrderStatus.PENDING);
+            
+            BigDecimal totalAmount = BigDecimal.ZERO;
+            
+            // Create order items from the priced lines
+            for (StockReservationResultDTO.ReservedItem reservedItem : reservation.getItems()) {
+                OrderItem orderItem = new OrderItem();
+                orderItem.setOrder(order);
+                orderItem.setProductId(reservedItem.getProductId());
+                orderItem.setProductName(reservedItem.getProductName());
+                orderItem.setQuantity(reservedItem.getQuantity());
+                orderItem.setUnitPrice(reservedItem.getUnitPrice());
+                orderItem.setTotalPrice(reservedItem.getTotalPrice());
+                
+                order.getItems().add(orderItem);
+                totalAmount = totalAmount.add(orderItem.getTotalPrice());
+            }
+            
+            order.setTotalAmount(totalAmount);
+            phaseStart = orderMetrics.phase(OrderMetrics.PRICING, phaseStart);
+            
+            // Save order
+            Order savedOrder = orderRepository.save(order);
+            phaseStart = orderMetrics.phase(OrderMetrics.PERSISTENCE, phaseStart);
+            
+            publishOrderCreated(savedOrder);
+            orderStatusCounters.recordCreated(savedOrder.getStatus());
+            salesRollups.recordOrder(savedOrder, 1);
+            orderMetrics.completed(started, orderMetrics.phase(OrderMetrics.PUBLISH, phaseStart));
+            
+            return savedOrder;
+        } catch (RuntimeException e) {
+            orderMetrics.outcome(outcome, started);
+            throw e;
         }
-        
-        // Create order
+    }
+    
+    // Asynchronous submission: the lines are checked and priced from the local catalog, and the
+    // order is stored as PENDING with its reservation outstanding. An acceptance worker reserves
+    // the stock later and confirms or cancels it. No warehouse call unless a product is not cached
+    public Order acceptOrder(OrderDTO orderDTO) {
         Order order = new Order();
         order.setCustomerName(orderDTO.getCustomerName());
         order.setCustomerEmail(orderDTO.getCustomerEmail());
         order.setStatus(OrderStatus.PENDING);
+        order.setReservationPending(true);
+        order.setReservationKey(UUID.randomUUID().toString());
         
         BigDecimal totalAmount = BigDecimal.ZERO;
-        
-        // Create order items
-        for (OrderItemDTO itemDTO : orderDTO.getItems()) {
-            ProductDTO product = warehouseService.getProductById(itemDTO.getProductId());
+        for (OrderItemDTO line : orderDTO.getItems()) {
+            if (line.getProductId() == null || line.getQuantity() == null || line.getQuantity() < 1) {
+                throw new IllegalArgumentException("Every line needs a product ID and a positive quantity");
+            }
+            ProductDTO product = productCatalogCache.getProductById(line.getProductId());
             if (product == null) {
-                throw new RuntimeException("Product not found: " + itemDTO.getProductId());
+                throw new IllegalArgumentException("Product not found: " + line.getProductId());
             }
-            
             OrderItem orderItem = new OrderItem();
             orderItem.setOrder(order);
             orderItem.setProductId(product.getId());
             orderItem.setProductName(product.getName());
-            orderItem.setQuantity(itemDTO.getQuantity());
+            orderItem.setQuantity(line.getQuantity());
             orderItem.setUnitPrice(product.getPrice());
-            orderItem.setTotalPrice(product.getPrice().multiply(BigDecimal.valueOf(itemDTO.getQuantity())));
+            orderItem.setTotalPrice(product.getPrice().multiply(BigDecimal.valueOf(line.getQuantity())));
             
             order.getItems().add(orderItem);
             totalAmount = totalAmount.add(orderItem.getTotalPrice());
         }
-        
         order.setTotalAmount(totalAmount);
         
-        // Save order
         Order savedOrder = orderRepository.save(order);
-        
-        // Update stock in warehouse
-        for (OrderItemDTO itemDTO : orderDTO.getItems()) {
-            warehouseService.updateStock(itemDTO.getProductId(), itemDTO.getQuantity(), "SUBTRACT");
+        orderStatusCounters.recordCreated(savedOrder.getStatus());
+        orderAcceptanceQueue.enqueueAfterCommit(savedOrder.getId());
+        return savedOrder;
+    }
+    
+    @Transactional(readOnly = true)
+    public List<Order> getReservationPendingOrders(Collection<Long> orderIds) {
+        return orderRepository.findWithItemsByIdIn(orderIds).stream()
+                .filter(Order::isReservationPending)
+                .toList();
+    }
+    
+    // Applies the reservations made for asynchronously accepted orders in one transaction: a
+    // reserved order is repriced from the warehouse's answer and CONFIRMED, a rejected one
+    // CANCELLED. Each order is claimed first, so one cancelled in the meantime is left alone.
+    // Returns the orders no longer waiting for a successful reservation, whose stock the caller
+    // must release
+    public List<Long> completeReservations(Map<Long, StockReservationResultDTO> reservations) {
+        Map<Long, StockReservationResultDTO> unclaimed = new LinkedHashMap<>(reservations);
+        for (Order order : orderRepository.findWithItemsByIdIn(reservations.keySet())) {
+            if (!order.isReservationPending() || orderRepository.claimReservation(order.getId()) == 0) {
+                continue;
+            }
+            // Claimed while pending, so nothing else has moved its status since it was read
+            StockReservationResultDTO reservation = unclaimed.remove(order.getId());
+            OrderStatus oldStatus = order.getStatus();
+            order.setReservationPending(false);
+            if (reservation.isReserved()) {
+                priceFromReservation(order, reservation);
+                order.setStatus(OrderStatus.CONFIRMED);
+                publishOrderCreated(order);
+                salesRollups.recordOrder(order, 1);
+            } else {
+                order.setStatus(OrderStatus.CANCELLED);
+            }
+            messagePublisher.publishOrderStatusUpdate(order.getId(), oldStatus.toString(), order.getStatus().toString());
+            orderStatusCounters.recordTransition(oldStatus, order.getStatus());
         }
-        
-        List<OrderCreatedMessage.OrderItemMessage> messageItems = savedOrder.getItems().stream()
-                .map(item -> new OrderCreatedMessage.OrderItemMessage(
-                        item.getProductId(),
-                        item.getProductName(),
-                        item.getQuantity(),
-                        item.getUnitPrice(),
-                        item.getTotalPrice()
-                ))
+        return unclaimed.entrySet().stream()
+                .filter(entry -> entry.getValue().isReserved())
+                .map(Map.Entry::getKey)
                 .toList();
-        
-        OrderCreatedMessage orderMessage = new OrderCreatedMessage(
-                savedOrder.getId(),
-                savedOrder.getCustomerName(),
-                savedOrder.getCustomerEmail(),
-                savedOrder.getTotalAmount(),
-                messageItems
-        );
-        messagePublisher.publishOrderCreated(orderMessage);
-        
-        return savedOrder;
     }
     
+    // An order waiting for its stock reservation can only be cancelled; the acceptance worker
+    // decides its status otherwise (IllegalStateException)
     public Optional<Order> updateOrderStatus(Long orderId, OrderStatus newStatus) {
-        return orderRepository.findById(orderId)
+        return orderRepository.findWithItemsById(orderId)
                 .map(order -> {
+                    if (order.isReservationPending()) {
+                        if (newStatus != OrderStatus.CANCELLED) {
+                            throw new IllegalStateException("Order " + orderId + " is waiting for its stock reservation");
+                        }
+                        if (cancelUnreserved(order)) {
+                            messagePublisher.publishOrderStatusUpdate(orderId, OrderStatus.PENDING.toString(),
+                                    OrderStatus.CANCELLED.toString());
+                            return order;
+                        }
+                    }
                     OrderStatus oldStatus = order.getStatus();
                     order.setStatus(newStatus);
                     Order savedOrder = orderRepository.save(order);
                     
                     messagePublisher.publishOrderStatusUpdate(orderId, oldStatus.toString(), newStatus.toString());
+                    orderStatusCounters.recordTransition(oldStatus, newStatus);
+                    // Cancelled orders drop out of the sales rollups and come back if reinstated
+                    if (oldStatus != OrderStatus.CANCELLED && newStatus == OrderStatus.CANCELLED) {
+                        salesRollups.recordOrder(savedOrder, -1);
+                    } else if (oldStatus == OrderStatus.CANCELLED && newStatus != OrderStatus.CANCELLED) {
+                        salesRollups.recordOrder(savedOrder, 1);
+                    }
                     
                     return savedOrder;
                 });
     }
     
     public boolean cancelOrder(Long orderId) {
-        Optional<Order> orderOpt = orderRepository.findById(orderId);
+        Optional<Order> orderOpt = orderRepository.findWithItemsById(orderId);
         if (orderOpt.isPresent()) {
             Order order = orderOpt.get();
+            if (order.isReservationPending() && cancelUnreserved(order)) {
+                return true;
+            }
             if (order.getStatus() == OrderStatus.PENDING || order.getStatus() == OrderStatus.CONFIRMED) {
-                // Restore stock
-                for (OrderItem item : order.getItems()) {
-                    warehouseService.updateStock(item.getProductId(), item.getQuantity(), "ADD");
-                }
+                // Restore stock, one concurrent call per line
+                List<OrderItemDTO> cancelledLines = order.getItems().stream()
+                        .map(item -> new OrderItemDTO(item.getProductId(), item.getQuantity()))
+                        .toList();
+                warehouseService.updateStock(cancelledLines, "ADD");
                 
+                OrderStatus oldStatus = order.getStatus();
                 order.setStatus(OrderStatus.CANCELLED);
                 orderRepository.save(order);
+                orderStatusCounters.recordTransition(oldStatus, OrderStatus.CANCELLED);
+                salesRollups.recordOrder(order, -1);
                 return true;
             }
         }
         return false;
     }
     
+    // Cancels an order still waiting for its reservation, if the acceptance worker has not claimed
+    // it first. Nothing is reserved for it then, and the worker gives back whatever it reserves.
+    // Otherwise the order is reloaded as the worker left it (CONFIRMED or CANCELLED)
+    private boolean cancelUnreserved(Order order) {
+        if (orderRepository.claimReservation(order.getId()) == 0) {
+            entityManager.refresh(order);
+            return false;
+        }
+        order.setReservationPending(false);
+        order.setStatus(OrderStatus.CANCELLED);
+        orderRepository.save(order);
+        orderStatusCounters.recordTransition(OrderStatus.PENDING, OrderStatus.CANCELLED);
+        return true;
+    }
+    
+    // Served from the in-memory counters; no query
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Long getOrderCountByStatus(OrderStatus status) {
-        return orderRepository.countByStatus(status);
+        return orderStatusCounters.count(status);
+    }
+    
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public OrderCountersStatsDTO getOrderCountersStats() {
+        return orderStatusCounters.getStats();
+    }
+    
+    // The stock was taken by another service, so a rollback anywhere after the reservation (the
+    // order insert, the outbox event, the commit itself) has to give it back by hand
+    private void giveBackOnRollback(StockReservationResultDTO reservation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        List<OrderItemDTO> reservedLines = reservation.getItems().stream()
+                .map(reservedItem -> new OrderItemDTO(reservedItem.getProductId(), reservedItem.getQuantity()))
+                .toList();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    warehouseService.updateStock(reservedLines, "ADD");
+                }
+            }
+        });
+    }
+    
+    private void publishOrderCreated(Order order) {
+        List<OrderCreatedMessage.OrderItemMessage> messageItems = order.getItems().stream()
+                .map(item -> new OrderCreatedMessage.OrderItemMessage(
+                        item.getProductId(),
+                        item.getProductName(),
+                        item.getQuantity(),
+                        item.getUnitPrice(),
+                        item.getTotalPrice()
+                ))
+                .toList();
+        
+        OrderCreatedMessage orderMessage = new OrderCreatedMessage(
+                order.getId(),
+                order.getCustomerName(),
+                order.getCustomerEmail(),
+                order.getTotalAmount(),
+                messageItems
+        );
+        messagePublisher.publishOrderCreated(orderMessage);
+    }
+    
+    // The warehouse answers one line per product, so repeated lines share its price
+    private void priceFromReservation(Order order, StockReservationResultDTO reservation) {
+        Map<Long, StockReservationResultDTO.ReservedItem> reservedByProduct = new HashMap<>();
+        for (StockReservationResultDTO.ReservedItem reservedItem : reservation.getItems()) {
+            reservedByProduct.put(reservedItem.getProductId(), reservedItem);
+        }
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (OrderItem orderItem : order.getItems()) {
+            StockReservationResultDTO.ReservedItem reservedItem = reservedByProduct.get(orderItem.getProductId());
+            orderItem.setProductName(reservedItem.getProductName());
+            orderItem.setUnitPrice(reservedItem.getUnitPrice());
+            orderItem.setTotalPrice(reservedItem.getUnitPrice().multiply(BigDecimal.valueOf(orderItem.getQuantity())));
+            totalAmount = totalAmount.add(orderItem.getTotalPrice());
+        }
+        order.setTotalAmount(totalAmount);
+    }
+    
+    // Fetches one row past the page size to tell whether another page exists. A page costs two
+    // statements however many orders it holds: the orders, then the lines of all of them
+    private CursorPageDTO<OrderSummaryDTO> page(String cursor, Integer limit, PageQuery query) {
+        int pageSize = resolvePageSize(limit);
+        PageCursor after = PageCursor.decode(cursor);
+        List<OrderSummaryDTO> rows = query.fetch(after != null ? after : FIRST_PAGE, PageRequest.ofSize(pageSize + 1));
+        if (rows.size() <= pageSize) {
+            attachLines(rows);
+            return new CursorPageDTO<>(rows, null, pageSize);
+        }
+        List<OrderSummaryDTO> items = rows.subList(0, pageSize);
+        attachLines(items);
+        OrderSummaryDTO last = items.get(pageSize - 1);
+        return new CursorPageDTO<>(items, new PageCursor(last.getCreatedAt(), last.getId()).encode(), pageSize);
+    }
+    
+    private void attachLines(List<OrderSummaryDTO> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        Map<Long, OrderSummaryDTO> ordersById = new LinkedHashMap<>();
+        for (OrderSummaryDTO order : orders) {
+            ordersById.put(order.getId(), order);
+        }
+        for (OrderLineDTO line : orderRepository.findLinesByOrderIds(ordersById.keySet())) {
+            ordersById.get(line.getOrderId()).getItems().add(line);
+        }
+    }
+    
+    private long writeChunk(List<OrderSummaryDTO> chunk, OutputStream out) throws IOException {
+        attachLines(chunk);
+        for (OrderSummaryDTO order : chunk) {
+            out.write(objectMapper.writeValueAsBytes(order));
+            out.write('\n');
+        }
+        out.flush();
+        long written = chunk.size();
+        chunk.clear();
+        return written;
+    }
+    
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        return Math.min(limit, maxPageSize);
+    }
+    
+    @FunctionalInterface
+    private interface PageQuery {
+        List<OrderSummaryDTO> fetch(PageCursor after, PageRequest pageable);
     }
 }
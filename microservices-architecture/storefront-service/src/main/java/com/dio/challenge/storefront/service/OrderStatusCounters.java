@@ -0,0 +1,185 @@
+package com.dio.challenge.storefront.service;
+
+import com.dio.challenge.storefront.dto.OrderCountersStatsDTO;
+import com.dio.challenge.storefront.model.OrderStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Number of orders per status, kept in memory and moved by OrderService as orders are created and
+// change status, so counting is a LongAdder read instead of a COUNT over orders. The counts are
+// snapshotted to order_status_counts for restarts, and a reconciliation job compares them with
+// the orders table, reporting and correcting any drift.
+@Service
+public class OrderStatusCounters {
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Value("${order-counters.repair-drift:true}")
+    private boolean repairDrift;
+    
+    private final Map<OrderStatus, LongAdder> counts = new EnumMap<>(OrderStatus.class);
+    
+    // Changes whose transaction has not finished yet, and changes applied so far. Reconciliation
+    // only trusts a count of the table taken while neither moved.
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private volatile long persistedAt = 0;
+    private volatile boolean loaded = false;
+    
+    private final AtomicLong reconciliations = new AtomicLong();
+    private final AtomicLong skippedReconciliations = new AtomicLong();
+    private final AtomicLong driftsDetected = new AtomicLong();
+    private volatile LocalDateTime lastReconciledAt;
+    private volatile Map<OrderStatus, Long> lastDrift = Map.of();
+    
+    public OrderStatusCounters() {
+        for (OrderStatus status : OrderStatus.values()) {
+            counts.put(status, new LongAdder());
+        }
+    }
+    
+    // Loads the last snapshot, then checks it against the table: the snapshot is written
+    // periodically, so it can be behind after a crash
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        jdbcTemplate.query("SELECT status, order_count FROM order_status_counts", row -> {
+            LongAdder count = counts.get(OrderStatus.valueOf(row.getString("status")));
+            count.reset();
+            count.add(row.getLong("order_count"));
+        });
+        persistedAt = applied.get();
+        loaded = true;
+        reconcile();
+    }
+    
+    public long count(OrderStatus status) {
+        return counts.get(status).sum();
+    }
+    
+    public void recordCreated(OrderStatus status) {
+        record(null, status);
+    }
+    
+    public void recordTransition(OrderStatus from, OrderStatus to) {
+        if (from != to) {
+            record(from, to);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${order-counters.persist-interval-ms:5000}")
+    public void persist() {
+        long version = applied.get();
+        // Nothing is written before the snapshot has been read back
+        if (!loaded || version == persistedAt) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        counts.forEach((status, count) -> rows.add(new Object[]{count.sum(), status.name()}));
+        jdbcTemplate.batchUpdate(
+                "UPDATE order_status_counts SET order_count = ?, updated_at = CURRENT_TIMESTAMP WHERE status = ?", rows);
+        persistedAt = version;
+    }
+    
+    @PreDestroy
+    void persistOnShutdown() {
+        persist();
+    }
+    
+    @Scheduled(fixedDelayString = "${order-counters.reconcile-interval-ms:60000}",
+            initialDelayString = "${order-counters.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        long before = applied.get();
+        if (inFlight.get() > 0) {
+            skippedReconciliations.incrementAndGet();
+            return;
+        }
+        Map<OrderStatus, Long> actual = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : OrderStatus.values()) {
+            actual.put(status, 0L);
+        }
+        jdbcTemplate.query("SELECT status, COUNT(*) AS order_count FROM orders GROUP BY status",
+                row -> { actual.put(OrderStatus.valueOf(row.getString("status")), row.getLong("order_count")); });
+        if (inFlight.get() > 0 || applied.get() != before) {
+            // An order changed while the table was being counted
+            skippedReconciliations.incrementAndGet();
+            return;
+        }
+        
+        Map<OrderStatus, Long> drift = new EnumMap<>(OrderStatus.class);
+        actual.forEach((status, count) -> {
+            long difference = count - counts.get(status).sum();
+            if (difference != 0) {
+                drift.put(status, difference);
+            }
+        });
+        reconciliations.incrementAndGet();
+        lastReconciledAt = LocalDateTime.now();
+        lastDrift = drift;
+        if (drift.isEmpty()) {
+            return;
+        }
+        driftsDetected.incrementAndGet();
+        System.out.println("Order counters drifted from the orders table (actual - counted): " + drift
+                + (repairDrift ? ", correcting" : ""));
+        if (repairDrift) {
+            drift.forEach((status, difference) -> counts.get(status).add(difference));
+            applied.incrementAndGet();
+        }
+    }
+    
+    public OrderCountersStatsDTO getStats() {
+        Map<OrderStatus, Long> snapshot = new EnumMap<>(OrderStatus.class);
+        counts.forEach((status, count) -> snapshot.put(status, count.sum()));
+        OrderCountersStatsDTO stats = new OrderCountersStatsDTO();
+        stats.setCounts(snapshot);
+        stats.setReconciliations(reconciliations.get());
+        stats.setSkippedReconciliations(skippedReconciliations.get());
+        stats.setDriftsDetected(driftsDetected.get());
+        stats.setLastReconciledAt(lastReconciledAt);
+        stats.setLastDrift(lastDrift);
+        return stats;
+    }
+    
+    // Applied once the surrounding transaction commits, so a rolled back order is never counted
+    private void record(OrderStatus from, OrderStatus to) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(from, to);
+            return;
+        }
+        inFlight.incrementAndGet();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    apply(from, to);
+                }
+                inFlight.decrementAndGet();
+            }
+        });
+    }
+    
+    private void apply(OrderStatus from, OrderStatus to) {
+        if (from != null) {
+            counts.get(from).decrement();
+        }
+        counts.get(to).increment();
+        applied.incrementAndGet();
+    }
+}
@@ -0,0 +1,297 @@
+package com.dio.challenge.storefront.service;
+
+import com.dio.challenge.storefront.config.CborMessageConverter;
+import com.dio.challenge.storefront.dto.OutboxStatsDTO;
+import com.dio.challenge.storefront.model.OutboxEvent;
+import com.dio.challenge.storefront.repository.OutboxEventRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Drains the outbox in id order, waits for publisher confirms and deletes what the broker acked.
+// Delivery is at-least-once: an event is only removed after its confirm arrives. Events are
+// stored as JSON and sent as is, except to the exchanges listed in messaging.binary-exchanges,
+// where they are re-encoded as CBOR on the way out. An event that cannot be turned into a message
+// is dead-lettered (kept in the table, marked, with the reason) so the events after it still go
+// out. The relay runs on its own thread, since a batch can wait up to confirm-timeout-ms for the
+// broker and must not hold up other scheduled work.
+@Component
+public class OutboxRelay {
+    
+    private static final String TYPE_ID_HEADER = "__TypeId__";
+    private static final int MAX_FAILURE_LENGTH = 1000;
+    
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private MessageConverter messageConverter;
+    
+    @Value("${messaging.binary-exchanges:}")
+    private Set<String> binaryExchanges;
+    
+    @Value("${outbox.relay.batch-size:100}")
+    private int batchSize;
+    
+    @Value("${outbox.relay.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+    
+    @Value("${outbox.relay.interval-ms:200}")
+    private long intervalMs;
+    
+    private ScheduledExecutorService relayExecutor;
+    
+    private final LongAdder publishedEvents = new LongAdder();
+    private final LongAdder failedEvents = new LongAdder();
+    private final LongAdder deadLetteredEvents = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final AtomicLong lastBatchSize = new AtomicLong();
+    private final AtomicLong lastBatchLagMs = new AtomicLong();
+    private Timer batchTimer;
+    private DistributionSummary jsonMessageSizes;
+    private DistributionSummary cborMessageSizes;
+    
+    // The outbox backlog is the publishing side of queue lag: events committed but not yet
+    // confirmed by the broker, and how long the oldest of them has waited
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("outbox.pending", outboxEventRepository, OutboxEventRepository::countByDeadLetteredAtIsNull)
+                .description("Events in the outbox waiting for a broker confirm")
+                .register(meterRegistry);
+        Gauge.builder("outbox.dead.letters", outboxEventRepository, OutboxEventRepository::countByDeadLetteredAtIsNotNull)
+                .description("Events kept in the outbox because they could not be turned into a message")
+                .register(meterRegistry);
+        TimeGauge.builder("outbox.oldest.pending.age", this, TimeUnit.MILLISECONDS, OutboxRelay::oldestPendingAgeMs)
+                .description("Age of the oldest event in the outbox")
+                .register(meterRegistry);
+        FunctionCounter.builder("outbox.events", publishedEvents, LongAdder::sum)
+                .description("Events relayed to the broker")
+                .tag("result", "published")
+                .register(meterRegistry);
+        FunctionCounter.builder("outbox.events", failedEvents, LongAdder::sum)
+                .description("Events relayed to the broker")
+                .tag("result", "failed")
+                .register(meterRegistry);
+        FunctionCounter.builder("outbox.events", deadLetteredEvents, LongAdder::sum)
+                .description("Events relayed to the broker")
+                .tag("result", "dead_lettered")
+                .register(meterRegistry);
+        batchTimer = Timer.builder("outbox.relay.batch")
+                .description("Time to send a batch and wait for its confirms")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        jsonMessageSizes = messageSizes(MessageProperties.CONTENT_TYPE_JSON);
+        cborMessageSizes = messageSizes(CborMessageConverter.CONTENT_TYPE);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        relayExecutor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        relayExecutor.scheduleWithFixedDelay(this::tick, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    // Unconfirmed events stay in the outbox and go out again after the restart
+    @PreDestroy
+    void stop() {
+        if (relayExecutor != null) {
+            relayExecutor.shutdownNow();
+        }
+    }
+    
+    public void relay() {
+        try {
+            List<OutboxEvent> batch;
+            do {
+                batch = outboxEventRepository.findAllByDeadLetteredAtIsNullOrderByIdAsc(PageRequest.of(0, batchSize));
+                if (batch.isEmpty()) {
+                    return;
+                }
+            } while (publishBatch(batch) == batchSize);
+        } catch (AmqpException e) {
+            // Events stay in the outbox and are retried on the next run
+            System.out.println("Outbox relay could not reach the broker: " + e.getMessage());
+        }
+    }
+    
+    // A failed run must not end the schedule; whatever it left in the outbox is retried next run
+    private void tick() {
+        try {
+            relay();
+        } catch (RuntimeException e) {
+            System.out.println("Outbox relay run failed, will retry: " + e.getMessage());
+        }
+    }
+    
+    public OutboxStatsDTO getStats() {
+        OutboxStatsDTO stats = new OutboxStatsDTO();
+        stats.setPendingEvents(outboxEventRepository.countByDeadLetteredAtIsNull());
+        stats.setOldestPendingAgeMs(oldestPendingAgeMs());
+        stats.setPublishedEvents(publishedEvents.sum());
+        stats.setFailedEvents(failedEvents.sum());
+        stats.setDeadLetteredEvents(deadLetteredEvents.sum());
+        stats.setBatches(batches.sum());
+        stats.setLastBatchSize(lastBatchSize.get());
+        stats.setAverageBatchSize(batches.sum() == 0 ? 0.0
+                : (double) (publishedEvents.sum() + failedEvents.sum() + deadLetteredEvents.sum()) / batches.sum());
+        stats.setLastBatchLagMs(lastBatchLagMs.get());
+        return stats;
+    }
+    
+    private long oldestPendingAgeMs() {
+        LocalDateTime oldest = outboxEventRepository.findOldestCreatedAt();
+        return oldest != null ? Duration.between(oldest, LocalDateTime.now()).toMillis() : 0L;
+    }
+    
+    // Returns how many events the batch settled (acked or dead-lettered); a full batch means the
+    // outbox may hold more
+    private int publishBatch(List<OutboxEvent> batch) {
+        long started = System.nanoTime();
+        List<OutboxEvent> sent = new ArrayList<>(batch.size());
+        List<CorrelationData> confirms = new ArrayList<>(batch.size());
+        int deadLettered = 0;
+        for (OutboxEvent event : batch) {
+            Message message;
+            try {
+                message = toMessage(event);
+            } catch (IllegalStateException | MessageConversionException e) {
+                deadLetter(event, e);
+                deadLettered++;
+                continue;
+            }
+            CorrelationData correlationData = new CorrelationData(String.valueOf(event.getId()));
+            rabbitTemplate.send(event.getExchange(), event.getRoutingKey(), message, correlationData);
+            sent.add(event);
+            confirms.add(correlationData);
+        }
+        
+        // One deadline for the whole batch: confirms arrive together, so a broker that stopped
+        // answering costs confirm-timeout-ms once, not once per event
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+        List<Long> acked = new ArrayList<>(batch.size());
+        for (int i = 0; i < sent.size(); i++) {
+            if (isAcked(confirms.get(i), deadline)) {
+                acked.add(sent.get(i).getId());
+            } else {
+                failedEvents.increment();
+            }
+        }
+        outboxEventRepository.deleteAllByIdInBatch(acked);
+        
+        publishedEvents.add(acked.size());
+        batches.increment();
+        lastBatchSize.set(batch.size());
+        lastBatchLagMs.set(Duration.between(batch.get(0).getCreatedAt(), LocalDateTime.now()).toMillis());
+        batchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return acked.size() + deadLettered;
+    }
+    
+    private void deadLetter(OutboxEvent event, RuntimeException cause) {
+        String failure = String.valueOf(cause.getCause() != null ? cause.getCause() : cause);
+        if (failure.length() > MAX_FAILURE_LENGTH) {
+            failure = failure.substring(0, MAX_FAILURE_LENGTH);
+        }
+        outboxEventRepository.deadLetter(event.getId(), LocalDateTime.now(), failure);
+        deadLetteredEvents.increment();
+        System.out.println("Outbox event " + event.getId() + " dead-lettered: " + failure);
+    }
+    
+    private boolean isAcked(CorrelationData correlationData, long deadline) {
+        try {
+            long remaining = Math.max(deadline - System.nanoTime(), 0);
+            return correlationData.getFuture().get(remaining, TimeUnit.NANOSECONDS).isAck();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+    
+    private Message toMessage(OutboxEvent event) {
+        if (binaryExchanges.contains(event.getExchange())) {
+            return toCborMessage(event);
+        }
+        Message message = MessageBuilder.withBody(event.getPayload().getBytes(StandardCharsets.UTF_8))
+                .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                .setContentEncoding(StandardCharsets.UTF_8.name())
+                .setHeader(TYPE_ID_HEADER, event.getPayloadType())
+                .setMessageId(String.valueOf(event.getId()))
+                .setDeliveryMode(MessageDeliveryMode.PERSISTENT)
+                .build();
+        jsonMessageSizes.record(message.getBody().length);
+        return message;
+    }
+    
+    // The stored JSON is read back into its class so BigDecimals and timestamps keep their types
+    private Message toCborMessage(OutboxEvent event) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(CborMessageConverter.CONTENT_TYPE);
+        properties.setMessageId(String.valueOf(event.getId()));
+        properties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        try {
+            Object payload = objectMapper.readValue(event.getPayload(),
+                    ClassUtils.forName(event.getPayloadType(), getClass().getClassLoader()));
+            Message message = messageConverter.toMessage(payload, properties);
+            cborMessageSizes.record(message.getBody().length);
+            return message;
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Could not re-encode outbox event " + event.getId() + " as CBOR", e);
+        }
+    }
+    
+    private DistributionSummary messageSizes(String contentType) {
+        return DistributionSummary.builder("outbox.message.size")
+                .description("Body size of the messages relayed to the broker")
+                .baseUnit("bytes")
+                .tag("content.type", contentType)
+                .register(meterRegistry);
+    }
+}
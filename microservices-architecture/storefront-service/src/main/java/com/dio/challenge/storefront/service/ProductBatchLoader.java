@@ -0,0 +1,91 @@
+package com.dio.challenge.storefront.service;
+
+import com.dio.challenge.storefront.dto.ProductDTO;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Gathers single-product lookups that arrive within a short window into one batch call, the way
+// a DataLoader does: the first lookup opens a batch and schedules its dispatch, later ones join
+// it, and a batch that fills up is sent right away. Callers block until their batch answers, or
+// at most the window plus the timeout; a product the warehouse does not have comes back as null.
+public class ProductBatchLoader {
+    
+    private final ReactiveWarehouseService reactiveWarehouseService;
+    private final long windowMs;
+    private final int maxBatchSize;
+    private final Duration timeout;
+    private final DistributionSummary batchSizes;
+    
+    private final Object lock = new Object();
+    private Map<Long, CompletableFuture<ProductDTO>> open;
+    
+    public ProductBatchLoader(ReactiveWarehouseService reactiveWarehouseService, long windowMs, int maxBatchSize,
+                              Duration timeout, MeterRegistry meterRegistry) {
+        this.reactiveWarehouseService = reactiveWarehouseService;
+        this.windowMs = windowMs;
+        this.maxBatchSize = maxBatchSize;
+        this.timeout = timeout;
+        this.batchSizes = DistributionSummary.builder("warehouse.client.batch.size")
+                .description("Product lookups sent to the warehouse per batch call")
+                .register(meterRegistry);
+    }
+    
+    public ProductDTO load(Long productId) {
+        CompletableFuture<ProductDTO> result;
+        Map<Long, CompletableFuture<ProductDTO>> full = null;
+        synchronized (lock) {
+            if (open == null) {
+                Map<Long, CompletableFuture<ProductDTO>> batch = new LinkedHashMap<>();
+                open = batch;
+                Schedulers.parallel().schedule(() -> dispatchIfOpen(batch), windowMs, TimeUnit.MILLISECONDS);
+            }
+            result = open.computeIfAbsent(productId, id -> new CompletableFuture<>());
+            if (open.size() >= maxBatchSize) {
+                full = open;
+                open = null;
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return SingleFlight.join(result, timeout.plusMillis(windowMs));
+    }
+    
+    // The window ran out; a batch that filled up earlier has already gone
+    private void dispatchIfOpen(Map<Long, CompletableFuture<ProductDTO>> batch) {
+        synchronized (lock) {
+            if (open != batch) {
+                return;
+            }
+            open = null;
+        }
+        dispatch(batch);
+    }
+    
+    // Nothing can join the batch any more, so it is read without the lock. A batch that gets no
+    // answer within the timeout fails every lookup in it
+    private void dispatch(Map<Long, CompletableFuture<ProductDTO>> batch) {
+        batchSizes.record(batch.size());
+        reactiveWarehouseService.getProductsByIds(new ArrayList<>(batch.keySet()))
+                .collectList()
+                .timeout(timeout)
+                .subscribe(products -> {
+                    for (ProductDTO product : products) {
+                        CompletableFuture<ProductDTO> result = batch.get(product.getId());
+                        if (result != null) {
+                            result.complete(product);
+                        }
+                    }
+                    // Whatever is left was not found
+                    batch.values().forEach(result -> result.complete(null));
+                }, error -> batch.values().forEach(result -> result.completeExceptionally(error)));
+    }
+}
@@ -0,0 +1,242 @@
+package com.dio.challenge.storefront.service;
+
+import com.dio.challenge.storefront.dto.CatalogCacheStatsDTO;
+import com.dio.challenge.storefront.dto.ProductDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+@Service
+public class ProductCatalogCache {
+    
+    @Autowired
+    private WarehouseService warehouseService;
+    
+    @Value("${storefront.catalog-cache.max-size:10000}")
+    private long maxSize;
+    
+    @Value("${storefront.catalog-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+    
+    @Value("${products.batch.max-size:500}")
+    private int maxBatchSize;
+    
+    private Cache<Long, ProductDTO> products;
+    
+    // Time of the last full load; list reads are only served locally while it is within the TTL
+    // and no entry has been dropped since, otherwise the cache may be missing products
+    private volatile long fullCatalogLoadedAt = 0L;
+    private volatile boolean fullCatalogComplete = false;
+    
+    // Moves whenever a product as served changes, so list responses can carry an ETag; the start
+    // time keeps tags unique across restarts. lastLoaded is the list of the last full load, which
+    // the warehouse client hands back as is when the catalog has not changed upstream
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong();
+    private volatile List<ProductDTO> lastLoaded;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder fullReloads = new LongAdder();
+    private final LongAdder stockUpdatesApplied = new LongAdder();
+    private final LongAdder staleStockUpdates = new LongAdder();
+    
+    @PostConstruct
+    void init() {
+        products = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .removalListener((Long id, ProductDTO product, RemovalCause cause) -> {
+                    if (cause == RemovalCause.EXPIRED) {
+                        expirations.increment();
+                        fullCatalogComplete = false;
+                    } else if (cause == RemovalCause.SIZE) {
+                        evictions.increment();
+                        fullCatalogComplete = false;
+                    }
+                })
+                .build();
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            reloadAll();
+            System.out.println("Product catalog cache warmed with " + products.estimatedSize() + " products");
+        } catch (RuntimeException e) {
+            System.out.println("Product catalog cache warm-up skipped, warehouse unavailable: " + e.getMessage());
+        }
+    }
+    
+    public List<ProductDTO> getAllProducts() {
+        if (isFullCatalogFresh()) {
+            hits.increment();
+            return sortedSnapshot();
+        }
+        misses.increment();
+        return reloadAll();
+    }
+    
+    public List<ProductDTO> getAvailableProducts() {
+        return getAllProducts().stream()
+                .filter(product -> product.getStockQuantity() != null && product.getStockQuantity() > 0)
+                .toList();
+    }
+    
+    public ProductDTO getProductById(Long productId) {
+        ProductDTO cached = products.getIfPresent(productId);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        
+        ProductDTO product = warehouseService.getProductById(productId);
+        if (product != null) {
+            products.put(productId, product);
+            version.incrementAndGet();
+        }
+        return product;
+    }
+    
+    // Cached products are served locally and the rest fetched in one batch call. In the order
+    // asked for, each once; unknown ids are left out
+    public List<ProductDTO> getProductsByIds(List<Long> productIds) {
+        if (productIds.size() > maxBatchSize) {
+            throw new IllegalArgumentException("At most " + maxBatchSize + " product ids per batch");
+        }
+        Map<Long, ProductDTO> found = new LinkedHashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long productId : productIds) {
+            if (productId == null) {
+                throw new IllegalArgumentException("Product ids must not be null");
+            }
+            if (found.containsKey(productId)) {
+                continue;
+            }
+            ProductDTO cached = products.getIfPresent(productId);
+            if (cached != null) {
+                hits.increment();
+            } else {
+                misses.increment();
+                missing.add(productId);
+            }
+            found.put(productId, cached);
+        }
+        if (!missing.isEmpty()) {
+            for (ProductDTO product : warehouseService.getProductsByIds(missing)) {
+                products.put(product.getId(), product);
+                found.put(product.getId(), product);
+            }
+            version.incrementAndGet();
+        }
+        return found.values().stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+    
+    public boolean checkStockAvailability(Long productId, Integer quantity) {
+        ProductDTO product = getProductById(productId);
+        return product != null && product.getStockQuantity() != null && product.getStockQuantity() >= quantity;
+    }
+    
+    public void applyStockUpdate(Long productId, Integer currentStock, LocalDateTime timestamp) {
+        // Products that are not cached are left alone; the next read loads them with their price
+        products.asMap().computeIfPresent(productId, (id, cached) -> {
+            if (timestamp != null && cached.getUpdatedAt() != null && timestamp.isBefore(cached.getUpdatedAt())) {
+                staleStockUpdates.increment();
+                return cached;
+            }
+            stockUpdatesApplied.increment();
+            ProductDTO updated = copyOf(cached);
+            updated.setStockQuantity(currentStock);
+            updated.setUpdatedAt(timestamp != null ? timestamp : LocalDateTime.now());
+            version.incrementAndGet();
+            return updated;
+        });
+    }
+    
+    // Read before the content it tags, so a response is never tagged newer than its body
+    public String catalogETag(String variant) {
+        return "\"" + epoch + "-" + version.get() + "-" + variant + "\"";
+    }
+    
+    public CatalogCacheStatsDTO getStats() {
+        CatalogCacheStatsDTO stats = new CatalogCacheStatsDTO();
+        stats.setSize(products.estimatedSize());
+        stats.setMaxSize(maxSize);
+        stats.setTtlSeconds(ttlSeconds);
+        stats.setHits(hits.sum());
+        stats.setMisses(misses.sum());
+        stats.setExpirations(expirations.sum());
+        stats.setEvictions(evictions.sum());
+        stats.setFullReloads(fullReloads.sum());
+        stats.setStockUpdatesApplied(stockUpdatesApplied.sum());
+        stats.setStaleStockUpdates(staleStockUpdates.sum());
+        stats.setFullCatalogFresh(isFullCatalogFresh());
+        return stats;
+    }
+    
+    private List<ProductDTO> reloadAll() {
+        List<ProductDTO> all = warehouseService.getAllProducts();
+        fullReloads.increment();
+        if (all == lastLoaded) {
+            // Unchanged upstream: only entries dropped since the last load come back, and the
+            // version stays, so clients holding the catalog's ETag keep getting 304s
+            for (ProductDTO product : all) {
+                products.asMap().putIfAbsent(product.getId(), product);
+            }
+            fullCatalogComplete = all.size() <= maxSize;
+            fullCatalogLoadedAt = System.nanoTime();
+            return sortedSnapshot();
+        }
+        lastLoaded = all;
+        products.invalidateAll();
+        for (ProductDTO product : all) {
+            products.put(product.getId(), product);
+        }
+        fullCatalogComplete = all.size() <= maxSize;
+        fullCatalogLoadedAt = System.nanoTime();
+        version.incrementAndGet();
+        return all;
+    }
+    
+    public boolean isFullCatalogFresh() {
+        return fullCatalogComplete
+                && fullCatalogLoadedAt != 0L
+                && System.nanoTime() - fullCatalogLoadedAt < Duration.ofSeconds(ttlSeconds).toNanos();
+    }
+    
+    private List<ProductDTO> sortedSnapshot() {
+        return products.asMap().values().stream()
+                .sorted(Comparator.comparing(ProductDTO::getId))
+                .toList();
+    }
+    
+    private ProductDTO copyOf(ProductDTO source) {
+        ProductDTO copy = new ProductDTO(source.getId(), source.getName(), source.getDescription(),
+                source.getPrice(), source.getStockQuantity());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setUpdatedAt(source.getUpdatedAt());
+        return copy;
+    }
+}
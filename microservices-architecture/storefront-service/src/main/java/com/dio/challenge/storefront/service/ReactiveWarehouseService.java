@@ -0,0 +1,259 @@
+package com.dio.challenge.storefront.service;
+
+import com.dio.challenge.storefront.dto.OrderItemDTO;
+import com.dio.challenge.storefront.dto.ProductDTO;
+import com.dio.challenge.storefront.dto.StockReservationResultDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import jakarta.annotation.PostConstruct;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Service
+public class ReactiveWarehouseService {
+    
+    // Calls are timed by the client's observation, keyed by URI template, so every call passes
+    // its variables to a template rather than building the URI itself
+    @Autowired
+    private WebClient warehouseWebClient;
+    
+    // Upper bound on in-flight warehouse calls issued by a single fan-out
+    @Value("${warehouse.client.max-concurrency:8}")
+    private int maxConcurrency;
+    
+    @Value("${warehouse.client.max-batch-size:100}")
+    private int maxBatchSize;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // Last body of each catalog listing with its ETag; a 304 hands back the very same list
+    private final AtomicReference<Listing> allProducts = new AtomicReference<>();
+    private final AtomicReference<Listing> availableProducts = new AtomicReference<>();
+    private Counter notModified;
+    private Counter modified;
+    
+    @PostConstruct
+    void registerMetrics() {
+        notModified = conditionalRequests("not_modified");
+        modified = conditionalRequests("modified");
+    }
+    
+    // Reads the NDJSON export, so the catalog arrives one product per line instead of as pages
+    public Mono<List<ProductDTO>> getAllProducts() {
+        return conditionalGet(allProducts, "/api/products", MediaType.APPLICATION_NDJSON);
+    }
+    
+    public Mono<ProductDTO> getProductById(Long productId) {
+        return warehouseWebClient
+                .get()
+                .uri("/api/products/{id}", productId)
+                .retrieve()
+                .bodyToMono(ProductDTO.class)
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.empty());
+    }
+    
+    // One batch call per maxBatchSize ids, in the order given; unknown ids are left out
+    public Flux<ProductDTO> getProductsByIds(List<Long> productIds) {
+        return Flux.fromIterable(productIds)
+                .buffer(maxBatchSize)
+                .flatMapSequential(batch -> warehouseWebClient
+                        .post()
+                        .uri("/api/products/batch")
+                        .bodyValue(batch)
+                        .retrieve()
+                        .bodyToFlux(ProductDTO.class), maxConcurrency);
+    }
+    
+    public Mono<List<ProductDTO>> getAvailableProducts() {
+        return conditionalGet(availableProducts, "/api/products/available", MediaType.APPLICATION_JSON);
+    }
+    
+    public Flux<ProductDTO> searchProducts(String name) {
+        return warehouseWebClient
+                .get()
+                .uri("/api/products/search?name={name}", name)
+                .retrieve()
+                .bodyToFlux(ProductDTO.class);
+    }
+    
+    public Mono<Boolean> checkStockAvailability(Long productId, Integer quantity) {
+        return warehouseWebClient
+                .get()
+                .uri("/api/products/{id}/stock-check?quantity={quantity}", productId, quantity)
+                .retrieve()
+                .bodyToMono(Boolean.class);
+    }
+    
+    public Mono<ProductDTO> updateStock(Long productId, Integer quantity, String operation) {
+        StockUpdateRequest request = new StockUpdateRequest(productId, quantity, operation);
+        
+        return warehouseWebClient
+                .put()
+                .uri("/api/products/stock")
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(ProductDTO.class);
+    }
+    
+    public Mono<StockReservationResultDTO> reserveStock(List<OrderItemDTO> items) {
+        return reserveStock(items, null);
+    }
+    
+    // With a reservation key the warehouse takes the stock at most once, however often the call
+    // is retried. A 409 still carries the per-line failure list, so it is read as a normal body
+    public Mono<StockReservationResultDTO> reserveStock(List<OrderItemDTO> items, String reservationKey) {
+        StockReservationRequest request = new StockReservationRequest(items);
+        
+        return warehouseWebClient
+                .post()
+                .uri("/api/products/stock/reservations")
+                .headers(headers -> {
+                    if (reservationKey != null) {
+                        headers.set("Idempotency-Key", reservationKey);
+                    }
+                })
+                .bodyValue(request)
+                .exchangeToMono(response -> {
+                    if (response.statusCode().is2xxSuccessful() || response.statusCode().isSameCodeAs(HttpStatus.CONFLICT)) {
+                        return response.bodyToMono(StockReservationResultDTO.class);
+                    }
+                    return response.createException().flatMap(Mono::error);
+                });
+    }
+    
+    // Gives back the stock a keyed reservation took. A key the warehouse does not know (never
+    // reserved, or released already) has nothing to give back
+    public Mono<Void> releaseReservation(String reservationKey) {
+        return warehouseWebClient
+                .delete()
+                .uri("/api/products/stock/reservations/{key}", reservationKey)
+                .retrieve()
+                .toBodilessEntity()
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.empty())
+                .then();
+    }
+    
+    // Fan-out: one call per line with at most maxConcurrency in flight, so the total
+    // latency is close to the slowest call instead of the sum of all of them
+    public Mono<Void> updateStock(List<OrderItemDTO> items, String operation) {
+        return Flux.fromIterable(items)
+                .flatMap(item -> updateStock(item.getProductId(), item.getQuantity(), operation), maxConcurrency)
+                .then();
+    }
+    
+    // Sends If-None-Match with the ETag of the last body, and keeps the new body when one comes
+    private Mono<List<ProductDTO>> conditionalGet(AtomicReference<Listing> last, String uri, MediaType accept) {
+        Listing cached = last.get();
+        return warehouseWebClient
+                .get()
+                .uri(uri)
+                .accept(accept)
+                .headers(headers -> {
+                    if (cached != null) {
+                        headers.setIfNoneMatch(cached.eTag);
+                    }
+                })
+                .exchangeToMono(response -> {
+                    if (cached != null && response.statusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+                        notModified.increment();
+                        return Mono.just(cached.products);
+                    }
+                    if (!response.statusCode().is2xxSuccessful()) {
+                        return response.createException().flatMap(Mono::error);
+                    }
+                    modified.increment();
+                    String eTag = response.headers().asHttpHeaders().getETag();
+                    return response.bodyToFlux(ProductDTO.class)
+                            .collectList()
+                            .doOnNext(products -> last.set(eTag != null ? new Listing(eTag, products) : null));
+                });
+    }
+    
+    private Counter conditionalRequests(String result) {
+        return Counter.builder("warehouse.client.conditional")
+                .description("Conditional catalog requests, by whether the warehouse sent a new body")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+    
+    private static class Listing {
+        private final String eTag;
+        private final List<ProductDTO> products;
+        
+        private Listing(String eTag, List<ProductDTO> products) {
+            this.eTag = eTag;
+            this.products = products;
+        }
+    }
+    
+    // Inner class for batch stock reservation request
+    public static class StockReservationRequest {
+        private List<OrderItemDTO> items;
+        
+        public StockReservationRequest() {}
+        
+        public StockReservationRequest(List<OrderItemDTO> items) {
+            this.items = items;
+        }
+        
+        // Getters and Setters
+        public List<OrderItemDTO> getItems() {
+            return items;
+        }
+        
+        public void setItems(List<OrderItemDTO> items) {
+            this.items = items;
+        }
+    }
+    
+    // Inner class for stock update request
+    public static class StockUpdateRequest {
+        private Long productId;
+        private Integer quantity;
+        private String operation;
+        
+        public StockUpdateRequest() {}
+        
+        public StockUpdateRequest(Long productId, Integer quantity, String operation) {
+            this.productId = productId;
+            this.quantity = quantity;
+            this.operation = operation;
+        }
+        
+        // Getters and Setters
+        public Long getProductId() {
+            return productId;
+        }
+        
+        public void setProductId(Long productId) {
+            this.productId = productId;
+        }
+        
+        public Integer getQuantity() {
+            return quantity;
+        }
+        
+        public void setQuantity(Integer quantity) {
+            this.quantity = quantity;
+        }
+        
+        public String getOperation() {
+            return operation;
+        }
+        
+        public void setOperation(String operation) {
+            this.operation = operation;
+        }
+    }
+}
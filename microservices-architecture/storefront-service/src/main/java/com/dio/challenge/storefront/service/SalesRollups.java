@@ -0,0 +1,309 @@
+package com.dio.challenge.storefront.service;
+
+import com.dio.challenge.storefront.dto.ProductSalesDTO;
+import com.dio.challenge.storefront.dto.SalesBucketDTO;
+import com.dio.challenge.storefront.dto.SalesSummaryDTO;
+import com.dio.challenge.storefront.model.Order;
+import com.dio.challenge.storefront.model.OrderItem;
+import com.dio.challenge.storefront.model.SalesGranularity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Sales (orders, revenue, units) pre-aggregated into minute, hour and day buckets, overall and per
+// product, so date-range reports read a handful of bucket rows instead of the orders in the range.
+// An order counts in the buckets of its creation time until it is cancelled. Changes accumulate
+// in memory and are added to sales_rollups/product_sales_rollups by a periodic flush; every
+// report flushes first, so it sees all committed orders.
+@Service
+public class SalesRollups {
+    
+    private static final String MERGE_SALES =
+            "MERGE INTO sales_rollups t USING (VALUES (CAST(? AS VARCHAR(16)), CAST(? AS TIMESTAMP(6)), " +
+            "CAST(? AS BIGINT), CAST(? AS NUMERIC(19, 2)), CAST(? AS BIGINT))) " +
+            "AS v(granularity, bucket_start, order_count, revenue, units) " +
+            "ON t.granularity = v.granularity AND t.bucket_start = v.bucket_start " +
+            "WHEN MATCHED THEN UPDATE SET order_count = t.order_count + v.order_count, " +
+            "revenue = t.revenue + v.revenue, units = t.units + v.units " +
+            "WHEN NOT MATCHED THEN INSERT (granularity, bucket_start, order_count, revenue, units) " +
+            "VALUES (v.granularity, v.bucket_start, v.order_count, v.revenue, v.units)";
+    
+    private static final String MERGE_PRODUCT_SALES =
+            "MERGE INTO product_sales_rollups t USING (VALUES (CAST(? AS VARCHAR(16)), CAST(? AS TIMESTAMP(6)), " +
+            "CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS NUMERIC(19, 2)))) " +
+            "AS v(granularity, bucket_start, product_id, units, revenue) " +
+            "ON t.granularity = v.granularity AND t.bucket_start = v.bucket_start AND t.product_id = v.product_id " +
+            "WHEN MATCHED THEN UPDATE SET units = t.units + v.units, revenue = t.revenue + v.revenue " +
+            "WHEN NOT MATCHED THEN INSERT (granularity, bucket_start, product_id, units, revenue) " +
+            "VALUES (v.granularity, v.bucket_start, v.product_id, v.units, v.revenue)";
+    
+    // Coarsest first, the order in which a range is covered
+    private static final SalesGranularity[] COVERING_ORDER = {
+            SalesGranularity.DAY, SalesGranularity.HOUR, SalesGranularity.MINUTE};
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${reports.max-buckets:5000}")
+    private int maxBuckets;
+    
+    // Guards the pending deltas; held only to add to them or swap them out
+    private final ReentrantLock pendingLock = new ReentrantLock();
+    // Serializes flushes, so a report waits for one already writing
+    private final ReentrantLock flushLock = new ReentrantLock();
+    
+    private Map<SalesGranularity, Map<LocalDateTime, Totals>> pendingSales = newPending();
+    private Map<SalesGranularity, Map<LocalDateTime, Map<Long, Totals>>> pendingProductSales = newPending();
+    
+    // sign is 1 when the order starts counting (created, or un-cancelled) and -1 when it stops
+    public void recordOrder(Order order, int sign) {
+        LocalDateTime createdAt = order.getCreatedAt();
+        BigDecimal revenue = sign > 0 ? order.getTotalAmount() : order.getTotalAmount().negate();
+        List<long[]> lines = new ArrayList<>();
+        List<BigDecimal> lineRevenue = new ArrayList<>();
+        long units = 0;
+        for (OrderItem item : order.getItems()) {
+            lines.add(new long[]{item.getProductId(), (long) sign * item.getQuantity()});
+            lineRevenue.add(sign > 0 ? item.getTotalPrice() : item.getTotalPrice().negate());
+            units += item.getQuantity();
+        }
+        long orderUnits = sign * units;
+        afterCommit(() -> {
+            pendingLock.lock();
+            try {
+                for (SalesGranularity granularity : SalesGranularity.values()) {
+                    LocalDateTime bucket = granularity.bucketOf(createdAt);
+                    pendingSales.get(granularity).computeIfAbsent(bucket, key -> new Totals())
+                            .add(sign, revenue, orderUnits);
+                    Map<Long, Totals> products = pendingProductSales.get(granularity)
+                            .computeIfAbsent(bucket, key -> new HashMap<>());
+                    for (int i = 0; i < lines.size(); i++) {
+                        products.computeIfAbsent(lines.get(i)[0], key -> new Totals())
+                                .add(0, lineRevenue.get(i), lines.get(i)[1]);
+                    }
+                }
+            } finally {
+                pendingLock.unlock();
+            }
+        });
+    }
+    
+    @Scheduled(fixedDelayString = "${sales-rollups.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<SalesGranularity, Map<LocalDateTime, Totals>> sales;
+            Map<SalesGranularity, Map<LocalDateTime, Map<Long, Totals>>> productSales;
+            pendingLock.lock();
+            try {
+                sales = pendingSales;
+                productSales = pendingProductSales;
+                pendingSales = newPending();
+                pendingProductSales = newPending();
+            } finally {
+                pendingLock.unlock();
+            }
+            
+            List<Object[]> salesRows = new ArrayList<>();
+            sales.forEach((granularity, buckets) -> buckets.forEach((bucket, totals) ->
+                    salesRows.add(new Object[]{granularity.name(), Timestamp.valueOf(bucket),
+                            totals.orderCount, totals.revenue, totals.units})));
+            List<Object[]> productRows = new ArrayList<>();
+            productSales.forEach((granularity, buckets) -> buckets.forEach((bucket, products) ->
+                    products.forEach((productId, totals) ->
+                            productRows.add(new Object[]{granularity.name(), Timestamp.valueOf(bucket),
+                                    productId, totals.units, totals.revenue}))));
+            if (salesRows.isEmpty() && productRows.isEmpty()) {
+                return;
+            }
+            // Both tables in one transaction, so a failed flush can be retried as a whole
+            try {
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    jdbcTemplate.batchUpdate(MERGE_SALES, salesRows);
+                    jdbcTemplate.batchUpdate(MERGE_PRODUCT_SALES, productRows);
+                });
+            } catch (RuntimeException e) {
+                requeue(sales, productSales);
+                System.out.println("Sales rollup flush failed, will retry: " + e.getMessage());
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+    
+    // One bucket per granularity step from the bucket holding from up to to, empty ones included
+    public List<SalesBucketDTO> getSeries(LocalDateTime from, LocalDateTime to, SalesGranularity granularity) {
+        LocalDateTime start = granularity.bucketOf(from);
+        validateRange(start, to);
+        long buckets = granularity.bucketsBetween(start, to);
+        if (buckets > maxBuckets) {
+            throw new IllegalArgumentException("Range spans " + buckets + " " + granularity
+                    + " buckets; the limit is " + maxBuckets);
+        }
+        flush();
+        
+        Map<LocalDateTime, SalesBucketDTO> stored = new HashMap<>();
+        jdbcTemplate.query("SELECT bucket_start, order_count, revenue, units FROM sales_rollups " +
+                        "WHERE granularity = ? AND bucket_start >= ? AND bucket_start < ?",
+                row -> {
+                    LocalDateTime bucket = row.getTimestamp("bucket_start").toLocalDateTime();
+                    stored.put(bucket, new SalesBucketDTO(bucket, row.getLong("order_count"),
+                            row.getBigDecimal("revenue"), row.getLong("units")));
+                },
+                granularity.name(), Timestamp.valueOf(start), Timestamp.valueOf(to));
+        
+        List<SalesBucketDTO> series = new ArrayList<>((int) buckets);
+        for (LocalDateTime bucket = start; bucket.isBefore(to); bucket = granularity.next(bucket)) {
+            SalesBucketDTO row = stored.get(bucket);
+            series.add(row != null ? row : new SalesBucketDTO(bucket, 0, BigDecimal.ZERO.setScale(2), 0));
+        }
+        return series;
+    }
+    
+    // Totals for [from, to) at minute resolution: whole days from the day buckets, the hours at
+    // either end from hour buckets and the remaining minutes from minute buckets. A month costs
+    // around thirty day rows plus at most a few hundred hour and minute rows at the edges.
+    public SalesSummaryDTO getSummary(LocalDateTime from, LocalDateTime to) {
+        List<Object> args = new ArrayList<>();
+        String where = coveringWhere(from, to, args);
+        flush();
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) AS buckets, COALESCE(SUM(order_count), 0) AS order_count, " +
+                        "COALESCE(SUM(revenue), 0) AS revenue, COALESCE(SUM(units), 0) AS units " +
+                        "FROM sales_rollups WHERE " + where,
+                (row, rowNum) -> new SalesSummaryDTO(minute(from), minute(to), row.getLong("order_count"),
+                        row.getBigDecimal("revenue").setScale(2), row.getLong("units"), row.getLong("buckets")),
+                args.toArray());
+    }
+    
+    // Best-selling products by units over [from, to), covered the same way as getSummary
+    public List<ProductSalesDTO> getTopProducts(LocalDateTime from, LocalDateTime to, int limit) {
+        List<Object> args = new ArrayList<>();
+        String where = coveringWhere(from, to, args);
+        args.add(limit);
+        flush();
+        return jdbcTemplate.query("SELECT product_id, SUM(units) AS units, SUM(revenue) AS revenue " +
+                        "FROM product_sales_rollups WHERE " + where +
+                        " GROUP BY product_id HAVING SUM(units) > 0 ORDER BY units DESC, product_id LIMIT ?",
+                (row, rowNum) -> new ProductSalesDTO(row.getLong("product_id"), row.getLong("units"),
+                        row.getBigDecimal("revenue")),
+                args.toArray());
+    }
+    
+    private String coveringWhere(LocalDateTime from, LocalDateTime to, List<Object> args) {
+        LocalDateTime start = minute(from);
+        LocalDateTime end = minute(to);
+        validateRange(start, end);
+        List<String> clauses = new ArrayList<>();
+        cover(start, end, 0, clauses, args);
+        return "(" + String.join(" OR ", clauses) + ")";
+    }
+    
+    // Uses the coarsest buckets that fit entirely inside the range and recurses on what is left
+    // at either end with the next finer granularity
+    private void cover(LocalDateTime from, LocalDateTime to, int level, List<String> clauses, List<Object> args) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        SalesGranularity granularity = COVERING_ORDER[level];
+        LocalDateTime start = granularity.ceil(from);
+        LocalDateTime end = granularity.bucketOf(to);
+        if (level == COVERING_ORDER.length - 1 || start.isBefore(end)) {
+            clauses.add("(granularity = ? AND bucket_start >= ? AND bucket_start < ?)");
+            args.add(granularity.name());
+            args.add(Timestamp.valueOf(start));
+            args.add(Timestamp.valueOf(end));
+            if (level < COVERING_ORDER.length - 1) {
+                cover(from, start, level + 1, clauses, args);
+                cover(end, to, level + 1, clauses, args);
+            }
+            return;
+        }
+        cover(from, to, level + 1, clauses, args);
+    }
+    
+    private void requeue(Map<SalesGranularity, Map<LocalDateTime, Totals>> sales,
+                         Map<SalesGranularity, Map<LocalDateTime, Map<Long, Totals>>> productSales) {
+        pendingLock.lock();
+        try {
+            sales.forEach((granularity, buckets) -> buckets.forEach((bucket, totals) ->
+                    pendingSales.get(granularity).computeIfAbsent(bucket, key -> new Totals())
+                            .add(totals.orderCount, totals.revenue, totals.units)));
+            productSales.forEach((granularity, buckets) -> buckets.forEach((bucket, products) ->
+                    products.forEach((productId, totals) -> pendingProductSales.get(granularity)
+                            .computeIfAbsent(bucket, key -> new HashMap<>())
+                            .computeIfAbsent(productId, key -> new Totals())
+                            .add(0, totals.revenue, totals.units))));
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+    
+    private void validateRange(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("The range start must be before its end");
+        }
+    }
+    
+    private static LocalDateTime minute(LocalDateTime time) {
+        return time.truncatedTo(ChronoUnit.MINUTES);
+    }
+    
+    private static <V> Map<SalesGranularity, Map<LocalDateTime, V>> newPending() {
+        Map<SalesGranularity, Map<LocalDateTime, V>> pending = new EnumMap<>(SalesGranularity.class);
+        for (SalesGranularity granularity : SalesGranularity.values()) {
+            pending.put(granularity, new HashMap<>());
+        }
+        return pending;
+    }
+    
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+    
+    private static final class Totals {
+        private long orderCount = 0;
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private long units = 0;
+        
+        private void add(long orderCount, BigDecimal revenue, long units) {
+            this.orderCount += orderCount;
+            this.revenue = this.revenue.add(revenue);
+            this.units += units;
+        }
+    }
+}
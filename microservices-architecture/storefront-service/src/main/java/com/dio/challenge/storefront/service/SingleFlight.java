@@ -0,0 +1,89 @@
+package com.dio.challenge.storefront.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Collapses concurrent calls for the same key into one: the first caller makes the call, and
+// everyone asking for that key while it is in flight waits for it and gets the same result (or
+// the same exception). Nothing is kept once the call returns, so this is not a cache. Results are
+// shared between callers and must not be modified. A caller waits at most the timeout for a call
+// someone else is making, so one that hangs cannot park everyone behind it; the call itself must
+// be bounded by the caller.
+public class SingleFlight<K, V> {
+    
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Duration timeout;
+    private final Counter calls;
+    private final Counter shared;
+    
+    // Counted as warehouse.client.coalescing{operation, result=call|shared}; shared / (call + shared)
+    // is the share of lookups that did not reach the warehouse
+    public SingleFlight(MeterRegistry meterRegistry, String operation, Duration timeout) {
+        this.timeout = timeout;
+        this.calls = Counter.builder("warehouse.client.coalescing")
+                .description("Warehouse lookups, by whether they made the call or shared one in flight")
+                .tag("operation", operation)
+                .tag("result", "call")
+                .register(meterRegistry);
+        this.shared = Counter.builder("warehouse.client.coalescing")
+                .description("Warehouse lookups, by whether they made the call or shared one in flight")
+                .tag("operation", operation)
+                .tag("result", "shared")
+                .register(meterRegistry);
+        Gauge.builder("warehouse.client.in.flight", inFlight, ConcurrentHashMap::size)
+                .description("Distinct warehouse lookups in flight")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+    
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> leader = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, leader);
+        if (existing != null) {
+            shared.increment();
+            return join(existing, timeout);
+        }
+        
+        calls.increment();
+        V value;
+        try {
+            value = call.get();
+        } catch (RuntimeException | Error e) {
+            // Removed before completing, so whoever arrives after the failure makes a fresh call
+            inFlight.remove(key, leader);
+            leader.completeExceptionally(e);
+            throw e;
+        }
+        inFlight.remove(key, leader);
+        leader.complete(value);
+        return value;
+    }
+    
+    // Waits at most the timeout for the future and rethrows what it failed with as is, not wrapped.
+    // The timeout applies to this caller only; the future is left for the others
+    static <V> V join(CompletableFuture<V> future, Duration timeout) {
+        try {
+            return future.copy().orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new IllegalStateException("No answer from the warehouse within " + timeout.toMillis() + " ms", e.getCause());
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
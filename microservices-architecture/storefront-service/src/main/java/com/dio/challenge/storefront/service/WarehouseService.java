@@ -1,122 +1,106 @@
 package com.dio.challenge.storefront.service;
 
+import com.dio.challenge.storefront.dto.OrderItemDTO;
 import com.dio.challenge.storefront.dto.ProductDTO;
+import com.dio.challenge.storefront.dto.StockReservationResultDTO;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Mono;
 
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
 import java.util.List;
 
+// Blocking facade over ReactiveWarehouseService for the servlet request path. Concurrent lookups
+// of the same product or search term share one warehouse call, so a spike on a popular product
+// costs the warehouse one request per round trip instead of one per visitor, and lookups of
+// different products made within the batch window go out together as one batch call. Nobody waits
+// on a shared lookup longer than the client's response timeout.
 @Service
 public class WarehouseService {
     
     @Autowired
-    private WebClient warehouseWebClient;
+    private ReactiveWarehouseService reactiveWarehouseService;
     
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // 0 sends every product lookup on its own
+    @Value("${warehouse.client.batch-window-ms:2}")
+    private long batchWindowMs;
+    
+    @Value("${warehouse.client.max-batch-size:100}")
+    private int maxBatchSize;
+    
+    @Value("${warehouse.client.response-timeout-ms:5000}")
+    private long responseTimeoutMs;
+    
+    private Duration responseTimeout;
+    private SingleFlight<Long, ProductDTO> productLookups;
+    private SingleFlight<String, List<ProductDTO>> searches;
+    private ProductBatchLoader productBatchLoader;
+    
+    @PostConstruct
+    void init() {
+        responseTimeout = Duration.ofMillis(responseTimeoutMs);
+        productLookups = new SingleFlight<>(meterRegistry, "product", responseTimeout);
+        searches = new SingleFlight<>(meterRegistry, "search", responseTimeout);
+        if (batchWindowMs > 0) {
+            productBatchLoader = new ProductBatchLoader(reactiveWarehouseService, batchWindowMs, maxBatchSize,
+                    responseTimeout, meterRegistry);
+        }
+    }
+    
+    // The same list instance as last time when the catalog has not changed since
     public List<ProductDTO> getAllProducts() {
-        return warehouseWebClient
-                .get()
-                .uri("/api/products")
-                .retrieve()
-                .bodyToFlux(ProductDTO.class)
-                .collectList()
+        return reactiveWarehouseService.getAllProducts()
                 .block();
     }
     
+    // Null if the warehouse has no such product
     public ProductDTO getProductById(Long productId) {
-        return warehouseWebClient
-                .get()
-                .uri("/api/products/{id}", productId)
-                .retrieve()
-                .bodyToMono(ProductDTO.class)
+        if (productBatchLoader != null) {
+            return productLookups.execute(productId, () -> productBatchLoader.load(productId));
+        }
+        return productLookups.execute(productId, () -> reactiveWarehouseService.getProductById(productId)
+                .block(responseTimeout));
+    }
+    
+    public List<ProductDTO> getProductsByIds(List<Long> productIds) {
+        return reactiveWarehouseService.getProductsByIds(productIds)
+                .collectList()
                 .block();
     }
     
     public List<ProductDTO> getAvailableProducts() {
-        return warehouseWebClient
-                .get()
-                .uri("/api/products/available")
-                .retrieve()
-                .bodyToFlux(ProductDTO.class)
-                .collectList()
+        return reactiveWarehouseService.getAvailableProducts()
                 .block();
     }
     
     public List<ProductDTO> searchProducts(String name) {
-        return warehouseWebClient
-                .get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/api/products/search")
-                        .queryParam("name", name)
-                        .build())
-                .retrieve()
-                .bodyToFlux(ProductDTO.class)
+        return searches.execute(name, () -> reactiveWarehouseService.searchProducts(name)
                 .collectList()
-                .block();
+                .block(responseTimeout));
     }
     
     public boolean checkStockAvailability(Long productId, Integer quantity) {
-        return warehouseWebClient
-                .get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/api/products/{id}/stock-check")
-                        .queryParam("quantity", quantity)
-                        .build(productId))
-                .retrieve()
-                .bodyToMono(Boolean.class)
+        return reactiveWarehouseService.checkStockAvailability(productId, quantity)
                 .block();
     }
     
     public void updateStock(Long productId, Integer quantity, String operation) {
-        StockUpdateRequest request = new StockUpdateRequest(productId, quantity, operation);
-        
-        warehouseWebClient
-                .put()
-                .uri("/api/products/stock")
-                .bodyValue(request)
-                .retrieve()
-                .bodyToMono(ProductDTO.class)
+        reactiveWarehouseService.updateStock(productId, quantity, operation)
                 .block();
     }
     
-    // Inner class for stock update request
-    public static class StockUpdateRequest {
-        private Long productId;
-        private Integer quantity;
-        private String operation;
-        
-        public StockUpdateRequest() {}
-        
-        public StockUpdateRequest(Long productId, Integer quantity, String operation) {
-            this.productId = productId;
-            this.quantity = quantity;
-            this.operation = operation;
-        }
-        
-        // Getters and Setters
-        public Long getProductId() {
-            return productId;
-        }
-        
-        public void setProductId(Long productId) {
-            this.productId = productId;
-        }
-        
-        public Integer getQuantity() {
-            return quantity;
-        }
-        
-        public void setQuantity(Integer quantity) {
-            this.quantity = quantity;
-        }
-        
-        public String getOperation() {
-            return operation;
-        }
-        
-        public void setOperation(String operation) {
-            this.operation = operation;
-        }
+    public void updateStock(List<OrderItemDTO> items, String operation) {
+        reactiveWarehouseService.updateStock(items, operation)
+                .block();
+    }
+    
+    public StockReservationResultDTO reserveStock(List<OrderItemDTO> items) {
+        return reactiveWarehouseService.reserveStock(items)
+                .block();
     }
 }
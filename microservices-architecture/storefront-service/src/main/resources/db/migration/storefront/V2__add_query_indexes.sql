@@ -0,0 +1,11 @@
+-- Lines of an order (fetch joins, the per-page IN query and cancellation)
+CREATE INDEX idx_order_items_order_id ON order_items (order_id);
+
+-- Keyset pages of a customer's orders
+CREATE INDEX idx_orders_customer_email_created_at ON orders (customer_email, created_at DESC, id DESC);
+
+-- Keyset pages by status, and the status counters' reconciliation (GROUP BY status, answered from the index alone)
+CREATE INDEX idx_orders_status_created_at ON orders (status, created_at DESC, id DESC);
+
+-- Unfiltered and date-range keyset pages and the NDJSON export
+CREATE INDEX idx_orders_created_at ON orders (created_at DESC, id DESC);
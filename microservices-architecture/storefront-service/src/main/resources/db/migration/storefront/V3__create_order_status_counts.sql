@@ -0,0 +1,12 @@
+-- One row per order status, snapshotted from the in-memory OrderStatusCounters so a restart does
+-- not have to count the orders table. Seeded from the orders that already exist.
+CREATE TABLE order_status_counts (
+    status VARCHAR(255) PRIMARY KEY
+        CHECK (status IN ('PENDING', 'CONFIRMED', 'PROCESSING', 'SHIPPED', 'DELIVERED', 'CANCELLED')),
+    order_count BIGINT NOT NULL,
+    updated_at TIMESTAMP(6) NOT NULL
+);
+
+INSERT INTO order_status_counts (status, order_count, updated_at)
+SELECT s.status, (SELECT COUNT(*) FROM orders o WHERE o.status = s.status), CURRENT_TIMESTAMP
+FROM (VALUES ('PENDING'), ('CONFIRMED'), ('PROCESSING'), ('SHIPPED'), ('DELIVERED'), ('CANCELLED')) AS s(status);
@@ -0,0 +1,5 @@
+-- Orders accepted asynchronously (202) whose stock has not been reserved yet. The acceptance
+-- workers look them up by this flag, oldest first, after a restart or a failed attempt
+ALTER TABLE orders ADD COLUMN reservation_pending BOOLEAN DEFAULT FALSE NOT NULL;
+
+CREATE INDEX idx_orders_reservation_pending ON orders (reservation_pending, id);
@@ -0,0 +1,13 @@
+-- Order and order item ids come from sequences instead of identity columns, so Hibernate assigns
+-- them before inserting and can send an order and its items as JDBC batches. The increment is the
+-- entities' allocation size: each nextval reserves a block of 50 ids for the pooled optimizer.
+-- Sequences restart a block above existing ids, since the optimizer hands out the block below
+-- the value it reads
+CREATE SEQUENCE orders_seq START WITH 50 INCREMENT BY 50;
+CREATE SEQUENCE order_items_seq START WITH 50 INCREMENT BY 50;
+
+ALTER SEQUENCE orders_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM orders);
+ALTER SEQUENCE order_items_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM order_items);
+
+ALTER TABLE order_items ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE orders ALTER COLUMN id DROP IDENTITY;
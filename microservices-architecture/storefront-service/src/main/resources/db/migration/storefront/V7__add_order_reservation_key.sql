@@ -0,0 +1,4 @@
+-- Idempotency key the acceptance workers send with every attempt to reserve an asynchronously
+-- accepted order's stock, so a retry after a lost response cannot reserve it twice. Null for
+-- orders reserved synchronously
+ALTER TABLE orders ADD COLUMN reservation_key VARCHAR(36);
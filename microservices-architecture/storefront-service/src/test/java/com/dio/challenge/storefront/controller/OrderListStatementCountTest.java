@@ -0,0 +1,111 @@
+package com.dio.challenge.storefront.controller;
+
+import com.dio.challenge.storefront.model.Order;
+import com.dio.challenge.storefront.model.OrderItem;
+import com.dio.challenge.storefront.model.OrderStatus;
+import com.dio.challenge.storefront.repository.OrderRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Every order list endpoint answers a page with two statements, the orders and then the lines of
+// all of them, whether the page holds 5 orders or all 500. Background jobs are pushed out of the
+// way so the session factory's statement count is the request's alone
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:storefront-list-statements",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.rabbitmq.listener.simple.auto-startup=false",
+        "orders.async.workers=0",
+        "orders.async.sweep-interval-ms=3600000",
+        "order-counters.persist-interval-ms=3600000",
+        "order-counters.reconcile-interval-ms=3600000",
+        "sales-rollups.flush-interval-ms=3600000",
+        "outbox.relay.interval-ms=3600000"
+})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class OrderListStatementCountTest {
+    
+    private static final int ORDERS = 500;
+    private static final int LINES_PER_ORDER = 3;
+    private static final String EMAIL = "bulk@example.com";
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    private Statistics statistics;
+    
+    @BeforeAll
+    void seedOrders() {
+        List<Order> orders = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order("Bulk Customer", EMAIL, new BigDecimal("29.70"));
+            order.setStatus(OrderStatus.CONFIRMED);
+            for (long productId = 1; productId <= LINES_PER_ORDER; productId++) {
+                order.getItems().add(new OrderItem(order, productId, "Product " + productId, 1, new BigDecimal("9.90")));
+            }
+            orders.add(order);
+        }
+        orderRepository.saveAll(orders);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+    
+    @Test
+    void allOrders() throws Exception {
+        assertConstantStatements("/api/orders");
+    }
+    
+    @Test
+    void ordersByCustomer() throws Exception {
+        assertConstantStatements("/api/orders/customer/" + EMAIL);
+    }
+    
+    @Test
+    void ordersByStatus() throws Exception {
+        assertConstantStatements("/api/orders/status/CONFIRMED");
+    }
+    
+    @Test
+    void ordersByDateRange() throws Exception {
+        assertConstantStatements("/api/orders/date-range?startDate=" + LocalDateTime.now().minusDays(1)
+                + "&endDate=" + LocalDateTime.now().plusDays(1));
+    }
+    
+    private void assertConstantStatements(String uri) throws Exception {
+        assertThat(statementsFor(uri, 5)).isEqualTo(2);
+        assertThat(statementsFor(uri, ORDERS)).isEqualTo(2);
+    }
+    
+    private long statementsFor(String uri, int limit) throws Exception {
+        statistics.clear();
+        mockMvc.perform(get(uri).param("limit", String.valueOf(limit)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(limit))
+                .andExpect(jsonPath("$.items[0].items.length()").value(LINES_PER_ORDER))
+                .andExpect(jsonPath("$.items[" + (limit - 1) + "].items.length()").value(LINES_PER_ORDER));
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,64 @@
+package com.dio.challenge.storefront.repository;
+
+import com.dio.challenge.storefront.model.Order;
+import com.dio.challenge.storefront.model.OrderItem;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// A 50-line order is written with one INSERT for the order and one JDBC batch for its lines, ids
+// coming from the pooled sequences. Saved in transactions of its own so the inserts are flushed
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderBatchInsertTest {
+    
+    private static final int LINES = 50;
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Test
+    void fiftyLineOrderIsInsertedInBatches() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        // Primes both sequences' id pools, as any earlier order would have
+        transactionTemplate.executeWithoutResult(status -> orderRepository.save(newOrder()));
+        
+        statistics.clear();
+        transactionTemplate.executeWithoutResult(status -> orderRepository.save(newOrder()));
+        
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(LINES + 1);
+        // The order's id comes from the pool the first order started; its 50 lines take a new
+        // block of order_items_seq, then the order INSERT and the batched lines INSERT
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+    
+    private Order newOrder() {
+        Order order = new Order("Batch Customer", "batch@example.com", BigDecimal.ONE);
+        BigDecimal total = BigDecimal.ZERO;
+        for (long productId = 1; productId <= LINES; productId++) {
+            OrderItem item = new OrderItem(order, productId, "Product " + productId, 2, new BigDecimal("49.90"));
+            order.getItems().add(item);
+            total = total.add(item.getTotalPrice());
+        }
+        order.setTotalAmount(total);
+        return order;
+    }
+}
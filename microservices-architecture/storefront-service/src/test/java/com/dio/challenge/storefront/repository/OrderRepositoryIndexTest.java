@@ -0,0 +1,108 @@
+package com.dio.challenge.storefront.repository;
+
+import com.dio.challenge.storefront.dto.OrderSummaryDTO;
+import com.dio.challenge.storefront.model.OrderStatus;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The queries V2__add_query_indexes.sql was written for, each checked against H2's plan for the
+// SQL Hibernate actually generates: the plan must name the index and scan no table. H2 indexes
+// foreign keys itself and may pick that index for order_items.order_id, so any index leading
+// with that column passes
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.dio.challenge.storefront.repository.OrderRepositoryIndexTest$RecordedSql")
+class OrderRepositoryIndexTest {
+    
+    private static final LocalDateTime NOW = LocalDateTime.now();
+    private static final PageRequest PAGE = PageRequest.ofSize(50);
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void orderWithItemsUsesOrderIdIndex() {
+        assertUsesIndex(orderIdIndexes(), () -> orderRepository.findWithItemsById(1L));
+    }
+    
+    @Test
+    void linesOfAPageUseOrderIdIndex() {
+        assertUsesIndex(orderIdIndexes(), () -> orderRepository.findLinesByOrderIds(List.of(1L, 2L, 3L)));
+    }
+    
+    @Test
+    void ordersByCustomerUseCustomerEmailIndex() {
+        assertUsesIndex("IDX_ORDERS_CUSTOMER_EMAIL_CREATED_AT",
+                () -> orderRepository.findPageByCustomerEmailAfter("customer@example.com", NOW, Long.MAX_VALUE, PAGE));
+    }
+    
+    @Test
+    void ordersByStatusUseStatusIndex() {
+        assertUsesIndex("IDX_ORDERS_STATUS_CREATED_AT",
+                () -> orderRepository.findPageByStatusAfter(OrderStatus.CONFIRMED, NOW, Long.MAX_VALUE, PAGE));
+        // OrderStatusCounters.reconcile, run through JdbcTemplate
+        assertPlanUsesIndex(List.of("IDX_ORDERS_STATUS_CREATED_AT"),
+                "SELECT status, COUNT(*) AS order_count FROM orders GROUP BY status");
+    }
+    
+    @Test
+    void ordersByDateUseCreatedAtIndex() {
+        assertUsesIndex("IDX_ORDERS_CREATED_AT",
+                () -> orderRepository.findPageByDateRangeAfter(NOW.minusDays(1), NOW, NOW, Long.MAX_VALUE, PAGE));
+        assertUsesIndex("IDX_ORDERS_CREATED_AT",
+                () -> orderRepository.findPageAfter(NOW, Long.MAX_VALUE, PAGE));
+        assertUsesIndex("IDX_ORDERS_CREATED_AT", () -> {
+            try (Stream<OrderSummaryDTO> orders = orderRepository.streamAll()) {
+                orders.findFirst();
+            }
+        });
+    }
+    
+    private void assertUsesIndex(String index, Runnable query) {
+        assertUsesIndex(List.of(index), query);
+    }
+    
+    private void assertUsesIndex(List<String> indexes, Runnable query) {
+        RecordedSql.STATEMENTS.clear();
+        query.run();
+        assertThat(RecordedSql.STATEMENTS).isNotEmpty();
+        assertPlanUsesIndex(indexes, RecordedSql.STATEMENTS.get(RecordedSql.STATEMENTS.size() - 1));
+    }
+    
+    private void assertPlanUsesIndex(List<String> indexes, String sql) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+        assertThat(plan).as(plan).doesNotContain("tableScan");
+        assertThat(indexes).as(plan).anyMatch(index -> plan.contains("PUBLIC." + index));
+    }
+    
+    private List<String> orderIdIndexes() {
+        List<String> indexes = jdbcTemplate.queryForList("SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEX_COLUMNS "
+                + "WHERE TABLE_NAME = 'ORDER_ITEMS' AND COLUMN_NAME = 'ORDER_ID' AND ORDINAL_POSITION = 1", String.class);
+        assertThat(indexes).contains("IDX_ORDER_ITEMS_ORDER_ID");
+        return indexes;
+    }
+    
+    // Set as Hibernate's statement inspector above; sees every SQL string before it is prepared
+    public static class RecordedSql implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+        
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
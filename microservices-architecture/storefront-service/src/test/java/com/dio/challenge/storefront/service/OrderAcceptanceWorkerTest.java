@@ -0,0 +1,164 @@
+package com.dio.challenge.storefront.service;
+
+import com.dio.challenge.storefront.dto.OrderItemDTO;
+import com.dio.challenge.storefront.dto.StockReservationResultDTO;
+import com.dio.challenge.storefront.model.Order;
+import com.dio.challenge.storefront.model.OrderItem;
+import com.dio.challenge.storefront.model.OrderStatus;
+import com.dio.challenge.storefront.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+
+// The warehouse reserves stock for an accepted order, then applying its answer fails. The stock
+// must be released by the order's key, so the retry takes it once more rather than replaying a
+// reservation whose stock went back: in the end the order is CONFIRMED and its units are gone
+// exactly once. The warehouse is a keyed in-memory stand-in; an unkeyed ADD puts stock back
+// without forgetting the key, as the real one does. The sweep is run by hand
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:storefront-acceptance",
+        "spring.rabbitmq.listener.simple.auto-startup=false",
+        "orders.async.workers=1",
+        "orders.async.sweep-interval-ms=3600000",
+        "order-counters.persist-interval-ms=3600000",
+        "order-counters.reconcile-interval-ms=3600000",
+        "sales-rollups.flush-interval-ms=3600000",
+        "outbox.relay.interval-ms=3600000"
+})
+class OrderAcceptanceWorkerTest {
+    
+    private static final long PRODUCT_ID = 1L;
+    private static final int INITIAL_STOCK = 10;
+    private static final int QUANTITY = 3;
+    
+    @MockBean
+    private ReactiveWarehouseService reactiveWarehouseService;
+    
+    @SpyBean
+    private OrderService orderService;
+    
+    @Autowired
+    private OrderAcceptanceWorker orderAcceptanceWorker;
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    private final KeyedWarehouse warehouse = new KeyedWarehouse();
+    
+    @BeforeEach
+    void stubWarehouse() {
+        when(reactiveWarehouseService.reserveStock(anyList(), anyString())).thenAnswer(invocation ->
+                Mono.fromCallable(() -> warehouse.reserve(invocation.getArgument(0), invocation.getArgument(1))));
+        when(reactiveWarehouseService.releaseReservation(anyString())).thenAnswer(invocation ->
+                Mono.fromRunnable(() -> warehouse.release(invocation.getArgument(0))));
+        when(reactiveWarehouseService.updateStock(anyList(), anyString())).thenAnswer(invocation ->
+                Mono.fromRunnable(() -> warehouse.update(invocation.getArgument(0), invocation.getArgument(1))));
+    }
+    
+    @Test
+    void failedCompletionReleasesTheReservationBeforeTheRetry() throws Exception {
+        doThrow(new IllegalStateException("Simulated failure applying reservations"))
+                .doCallRealMethod()
+                .when(orderService).completeReservations(any());
+        Long orderId = orderRepository.save(pendingOrder()).getId();
+        
+        Order order = awaitDecided(orderId);
+        
+        assertThat(order.getStatus()).isEqualTo(OrderStatus.CONFIRMED);
+        assertThat(warehouse.reservations()).isEqualTo(2);
+        assertThat(warehouse.releases()).isEqualTo(1);
+        assertThat(warehouse.stock()).isEqualTo(INITIAL_STOCK - QUANTITY);
+    }
+    
+    private Order pendingOrder() {
+        Order order = new Order("Async Customer", "async@example.com", new BigDecimal("29.70"));
+        order.setReservationPending(true);
+        order.setReservationKey(UUID.randomUUID().toString());
+        order.getItems().add(new OrderItem(order, PRODUCT_ID, "Product 1", QUANTITY, new BigDecimal("9.90")));
+        return order;
+    }
+    
+    // Sweeps until the worker has decided the order; a sweep while the failed batch is still
+    // queued does nothing
+    private Order awaitDecided(Long orderId) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (true) {
+            orderAcceptanceWorker.sweep();
+            Order order = orderRepository.findById(orderId).orElseThrow();
+            if (!order.isReservationPending()) {
+                return order;
+            }
+            assertThat(System.nanoTime()).as("order was not decided").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+    
+    // Keeps the warehouse's contract for keyed reservations: a key that took stock replays its
+    // answer, and releasing it gives the stock back and forgets the key
+    private static class KeyedWarehouse {
+        private final Map<String, StockReservationResultDTO> recorded = new HashMap<>();
+        private int stock = INITIAL_STOCK;
+        private int reservations;
+        private int releases;
+        
+        synchronized StockReservationResultDTO reserve(List<OrderItemDTO> items, String key) {
+            StockReservationResultDTO replayed = recorded.get(key);
+            if (replayed != null) {
+                return replayed;
+            }
+            List<StockReservationResultDTO.ReservedItem> reserved = new ArrayList<>();
+            for (OrderItemDTO item : items) {
+                stock -= item.getQuantity();
+                reserved.add(new StockReservationResultDTO.ReservedItem(item.getProductId(), "Product 1",
+                        item.getQuantity(), new BigDecimal("9.90"), stock));
+            }
+            reservations++;
+            StockReservationResultDTO result = new StockReservationResultDTO(true, reserved, new ArrayList<>());
+            recorded.put(key, result);
+            return result;
+        }
+        
+        synchronized void release(String key) {
+            StockReservationResultDTO result = recorded.remove(key);
+            if (result != null) {
+                result.getItems().forEach(item -> stock += item.getQuantity());
+                releases++;
+            }
+        }
+        
+        synchronized void update(List<OrderItemDTO> items, String operation) {
+            int sign = "ADD".equals(operation) ? 1 : -1;
+            items.forEach(item -> stock += sign * item.getQuantity());
+        }
+        
+        synchronized int stock() {
+            return stock;
+        }
+        
+        synchronized int reservations() {
+            return reservations;
+        }
+        
+        synchronized int releases() {
+            return releases;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.dio.challenge.warehouse.config;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractMessageConverter;
+import org.springframework.amqp.support.converter.DefaultJackson2JavaTypeMapper;
+import org.springframework.amqp.support.converter.Jackson2JavaTypeMapper;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.io.IOException;
+
+// Binary counterpart of Jackson2JsonMessageConverter: the same Jackson bindings written as CBOR
+// (application/cbor), so field names are length-prefixed instead of quoted, numbers and
+// BigDecimals are binary and timestamps are arrays of integers. Types are resolved as the JSON
+// converter does, from the listener parameter first and the __TypeId__ header otherwise.
+// Spring AMQP's Jackson base class decodes bodies as text, hence a converter of its own.
+public class CborMessageConverter extends AbstractMessageConverter {
+    
+    public static final String CONTENT_TYPE = "application/cbor";
+    
+    private final ObjectMapper cborMapper;
+    private final DefaultJackson2JavaTypeMapper typeMapper = new DefaultJackson2JavaTypeMapper();
+    
+    // Starts from Boot's ObjectMapper so modules and features match the JSON converter
+    public CborMessageConverter(ObjectMapper objectMapper) {
+        this.cborMapper = objectMapper.copyWith(new CBORFactory())
+                .enable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        typeMapper.setTypePrecedence(Jackson2JavaTypeMapper.TypePrecedence.INFERRED);
+        typeMapper.setTrustedPackages("*");
+    }
+    
+    @Override
+    protected Message createMessage(Object object, MessageProperties messageProperties) {
+        try {
+            byte[] body = cborMapper.writeValueAsBytes(object);
+            messageProperties.setContentType(CONTENT_TYPE);
+            messageProperties.setContentLength(body.length);
+            typeMapper.fromJavaType(cborMapper.constructType(object.getClass()), messageProperties);
+            return new Message(body, messageProperties);
+        } catch (IOException e) {
+            throw new MessageConversionException("Failed to write " + object.getClass().getSimpleName() + " as CBOR", e);
+        }
+    }
+    
+    @Override
+    public Object fromMessage(Message message) {
+        MessageProperties messageProperties = message.getMessageProperties();
+        JavaType targetType = typeMapper.toJavaType(messageProperties);
+        try {
+            return cborMapper.readValue(message.getBody(), targetType);
+        } catch (IOException e) {
+            throw new MessageConversionException("Failed to read CBOR message as " + targetType, e);
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.dio.challenge.warehouse.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -76,17 +79,24 @@ public class RabbitMQConfig {
                 .with(ORDER_PROCESSING_ROUTING_KEY);
     }
     
-    // Message converter
+    // Message converter (Boot's ObjectMapper has the java.time module for the message timestamps).
+    // JSON unless the message says application/cbor, so listeners read both formats while
+    // publishers move to CBOR exchange by exchange (messaging.binary-exchanges)
     @Bean
-    public Jackson2JsonMessageConverter messageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public ContentTypeDelegatingMessageConverter messageConverter(ObjectMapper objectMapper) {
+        ContentTypeDelegatingMessageConverter converter =
+                new ContentTypeDelegatingMessageConverter(new Jackson2JsonMessageConverter(objectMapper));
+        converter.addDelegate(CborMessageConverter.CONTENT_TYPE, new CborMessageConverter(objectMapper));
+        return converter;
     }
     
     // RabbitTemplate
     @Bean
-    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
+    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, MessageConverter messageConverter) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
-        template.setMessageConverter(messageConverter());
+        template.setMessageConverter(messageConverter);
+        // Times every send as spring.rabbit.template
+        template.setObservationEnabled(true);
         return template;
     }
 }
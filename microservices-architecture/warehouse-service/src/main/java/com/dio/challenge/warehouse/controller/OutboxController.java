@@ -0,0 +1,21 @@
+package com.dio.challenge.warehouse.controller;
+
+import com.dio.challenge.warehouse.dto.OutboxStatsDTO;
+import com.dio.challenge.warehouse.service.OutboxRelay;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/outbox")
+@CrossOrigin(origins = "*")
+public class OutboxController {
+    
+    @Autowired
+    private OutboxRelay outboxRelay;
+    
+    @GetMapping("/stats")
+    public ResponseEntity<OutboxStatsDTO> getStats() {
+        return ResponseEntity.ok(outboxRelay.getStats());
+    }
+}
@@ -1,15 +1,31 @@
 package com.dio.challenge.warehouse.controller;
 
+import com.dio.challenge.warehouse.dto.CursorPageDTO;
 import com.dio.challenge.warehouse.dto.ProductDTO;
+import com.dio.challenge.warehouse.dto.StockHoldDTO;
+import com.dio.challenge.warehouse.dto.StockHoldResultDTO;
+import com.dio.challenge.warehouse.dto.StockHoldStatsDTO;
+import com.dio.challenge.warehouse.dto.StockReservationDTO;
+import com.dio.challenge.warehouse.dto.StockReservationResultDTO;
 import com.dio.challenge.warehouse.dto.StockUpdateDTO;
 import com.dio.challenge.warehouse.model.Product;
+import com.dio.challenge.warehouse.service.CatalogSnapshots;
+import com.dio.challenge.warehouse.service.CatalogVersion;
 import com.dio.challenge.warehouse.service.ProductService;
+import com.dio.challenge.warehouse.service.StockHoldService;
+import com.dio.challenge.warehouse.service.StockReservationLog;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
@@ -20,29 +36,101 @@ public class ProductController {
     @Autowired
     private ProductService productService;
     
+    @Autowired
+    private StockHoldService stockHoldService;
+    
+    @Autowired
+    private CatalogVersion catalogVersion;
+    
+    @Autowired
+    private CatalogSnapshots catalogSnapshots;
+    
+    // Catalog reads carry an ETag from the catalog version. With a matching If-None-Match they are
+    // answered 304 before anything is loaded (a null return means checkNotModified has answered)
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
-        List<Product> products = productService.getAllProducts();
-        return ResponseEntity.ok(products);
+    public ResponseEntity<CursorPageDTO<Product>> getProducts(@RequestParam(required = false) String cursor,
+                                                              @RequestParam(required = false) Integer limit,
+                                                              WebRequest request) {
+        if (request.checkNotModified(catalogVersion.catalogETag("page"))) {
+            return null;
+        }
+        try {
+            return ResponseEntity.ok()
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .body(productService.getProducts(cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    // Full catalog export, selected with Accept: application/x-ndjson. Served from the catalog
+    // snapshot, and streamed from the database only while there is none. Declared as a streaming
+    // body either way, since only ResponseEntity<StreamingResponseBody> is written asynchronously
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllProducts(WebRequest request) {
+        CatalogSnapshots.Snapshot snapshot = catalogSnapshots.getAll();
+        if (snapshot != null) {
+            ResponseEntity<byte[]> response = snapshotResponse(snapshot, MediaType.APPLICATION_NDJSON, request,
+                    HttpHeaders.ACCEPT);
+            if (response == null) {
+                return null;
+            }
+            byte[] bytes = response.getBody();
+            return new ResponseEntity<>(out -> out.write(bytes), response.getHeaders(), response.getStatusCode());
+        }
+        if (request.checkNotModified(catalogVersion.catalogETag("ndjson"))) {
+            return null;
+        }
+        StreamingResponseBody body = out -> productService.exportProducts(out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(body);
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
+    public ResponseEntity<Product> getProductById(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(catalogVersion.productETag(id))) {
+            return null;
+        }
         return productService.getProductById(id)
                 .map(product -> ResponseEntity.ok(product))
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    // Many products in one call: ?ids=1,2,3, or a JSON array of ids in the body for long lists.
+    // Unknown ids are left out of the result
+    @GetMapping("/batch")
+    public ResponseEntity<List<Product>> getProductsByIds(@RequestParam List<Long> ids) {
+        return productsByIds(ids);
+    }
+    
+    @PostMapping("/batch")
+    public ResponseEntity<List<Product>> getProductsByIdsInBody(@RequestBody List<Long> ids) {
+        return productsByIds(ids);
+    }
+    
     @GetMapping("/available")
-    public ResponseEntity<List<Product>> getAvailableProducts() {
+    public ResponseEntity<?> getAvailableProducts(WebRequest request) {
+        CatalogSnapshots.Snapshot snapshot = catalogSnapshots.getAvailable();
+        if (snapshot != null) {
+            return snapshotResponse(snapshot, MediaType.APPLICATION_JSON, request);
+        }
+        if (request.checkNotModified(catalogVersion.catalogETag("available"))) {
+            return null;
+        }
         List<Product> products = productService.getAvailableProducts();
         return ResponseEntity.ok(products);
     }
     
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam String name) {
-        List<Product> products = productService.searchProductsByName(name);
-        return ResponseEntity.ok(products);
+    public ResponseEntity<List<Product>> searchProducts(@RequestParam String name,
+                                                        @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(productService.searchProducts(name, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     
     @GetMapping("/low-stock")
@@ -80,12 +168,132 @@ public class ProductController {
                     .orElse(ResponseEntity.notFound().build());
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+    
+    // An Idempotency-Key makes the call safe to retry: a repeat of a reservation that went through
+    // gets the same answer without taking the stock again
+    @PostMapping("/stock/reservations")
+    public ResponseEntity<StockReservationResultDTO> reserveStock(@Valid @RequestBody StockReservationDTO reservationDTO,
+                                                                  @RequestHeader(value = "Idempotency-Key", required = false) String reservationKey) {
+        if (reservationKey != null && (reservationKey.isBlank() || reservationKey.length() > StockReservationLog.MAX_KEY_LENGTH)) {
+            return ResponseEntity.badRequest().build();
+        }
+        StockReservationResultDTO result;
+        try {
+            result = productService.reserveStock(reservationDTO, reservationKey);
+        } catch (DuplicateKeyException e) {
+            // A concurrent call with the same key committed first; this one was rolled back
+            result = productService.reserveStock(reservationDTO, reservationKey);
+        }
+        if (result.isReserved()) {
+            return ResponseEntity.ok(result);
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(result);
+    }
+    
+    // Undoes a keyed reservation: its stock goes back and the key is forgotten
+    @DeleteMapping("/stock/reservations/{reservationKey}")
+    public ResponseEntity<Void> releaseReservation(@PathVariable String reservationKey) {
+        if (productService.releaseReservation(reservationKey)) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.notFound().build();
+    }
+    
+    // Time-limited hold for a checkout in progress; confirm it to take the stock or release it
+    @PostMapping("/stock/holds")
+    public ResponseEntity<StockHoldResultDTO> holdStock(@Valid @RequestBody StockHoldDTO holdDTO) {
+        try {
+            StockHoldResultDTO result = productService.holdStock(holdDTO);
+            if (result.isHeld()) {
+                return ResponseEntity.status(HttpStatus.CREATED).body(result);
+            }
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
     }
     
+    @PostMapping("/stock/holds/{holdId}/confirm")
+    public ResponseEntity<StockReservationResultDTO> confirmHold(@PathVariable Long holdId) {
+        return productService.confirmHold(holdId)
+                .map(result -> result.isReserved()
+                        ? ResponseEntity.ok(result)
+                        : ResponseEntity.status(HttpStatus.CONFLICT).body(result))
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @DeleteMapping("/stock/holds/{holdId}")
+    public ResponseEntity<Void> releaseHold(@PathVariable Long holdId) {
+        if (productService.releaseHold(holdId)) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.notFound().build();
+    }
+    
+    @GetMapping("/stock/holds/stats")
+    public ResponseEntity<StockHoldStatsDTO> getHoldStats() {
+        return ResponseEntity.ok(stockHoldService.getStats());
+    }
+    
     @GetMapping("/{id}/stock-check")
     public ResponseEntity<Boolean> checkStockAvailability(@PathVariable Long id, @RequestParam Integer quantity) {
         boolean available = productService.checkStockAvailability(id, quantity);
         return ResponseEntity.ok(available);
     }
+    
+    private ResponseEntity<List<Product>> productsByIds(List<Long> ids) {
+        try {
+            return ResponseEntity.ok(productService.getProductsByIds(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    // The snapshot's bytes as they are, gzip-compressed when the client accepts it
+    private ResponseEntity<byte[]> snapshotResponse(CatalogSnapshots.Snapshot snapshot, MediaType contentType,
+                                                    WebRequest request, String... varyBy) {
+        boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        if (request.checkNotModified(snapshot.getETag(gzip))) {
+            return null;
+        }
+        List<String> vary = new ArrayList<>(List.of(varyBy));
+        vary.add(HttpHeaders.ACCEPT_ENCODING);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(contentType)
+                .varyBy(vary.toArray(String[]::new));
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(snapshot.getBody(gzip));
+    }
+    
+    // gzip listed in Accept-Encoding (or *) without q=0
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
 }
@@ -0,0 +1,40 @@
+package com.dio.challenge.warehouse.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import java.util.List;
+
+public class StockHoldDTO {
+    
+    @NotEmpty(message = "Hold items are required")
+    @Valid
+    private List<StockReservationDTO.ReservationItem> items;
+    
+    // Seconds until the hold expires; the configured default when omitted
+    private Long ttlSeconds;
+    
+    // Constructors
+    public StockHoldDTO() {}
+    
+    public StockHoldDTO(List<StockReservationDTO.ReservationItem> items, Long ttlSeconds) {
+        this.items = items;
+        this.ttlSeconds = ttlSeconds;
+    }
+    
+    // Getters and Setters
+    public List<StockReservationDTO.ReservationItem> getItems() {
+        return items;
+    }
+    
+    public void setItems(List<StockReservationDTO.ReservationItem> items) {
+        this.items = items;
+    }
+    
+    public Long getTtlSeconds() {
+        return ttlSeconds;
+    }
+    
+    public void setTtlSeconds(Long ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+}
@@ -0,0 +1,68 @@
+package com.dio.challenge.warehouse.dto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class StockHoldResultDTO {
+    
+    private Long holdId;
+    private boolean held;
+    private LocalDateTime expiresAt;
+    private List<StockReservationDTO.ReservationItem> items = new ArrayList<>();
+    private List<StockReservationResultDTO.ReservationFailure> failures = new ArrayList<>();
+    
+    // Constructors
+    public StockHoldResultDTO() {}
+    
+    public StockHoldResultDTO(Long holdId, boolean held, LocalDateTime expiresAt,
+                              List<StockReservationDTO.ReservationItem> items,
+                              List<StockReservationResultDTO.ReservationFailure> failures) {
+        this.holdId = holdId;
+        this.held = held;
+        this.expiresAt = expiresAt;
+        this.items = items;
+        this.failures = failures;
+    }
+    
+    // Getters and Setters
+    public Long getHoldId() {
+        return holdId;
+    }
+    
+    public void setHoldId(Long holdId) {
+        this.holdId = holdId;
+    }
+    
+    public boolean isHeld() {
+        return held;
+    }
+    
+    public void setHeld(boolean held) {
+        this.held = held;
+    }
+    
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+    
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+    
+    public List<StockReservationDTO.ReservationItem> getItems() {
+        return items;
+    }
+    
+    public void setItems(List<StockReservationDTO.ReservationItem> items) {
+        this.items = items;
+    }
+    
+    public List<StockReservationResultDTO.ReservationFailure> getFailures() {
+        return failures;
+    }
+    
+    public void setFailures(List<StockReservationResultDTO.ReservationFailure> failures) {
+        this.failures = failures;
+    }
+}
@@ -0,0 +1,69 @@
+package com.dio.challenge.warehouse.dto;
+
+public class StockHoldStatsDTO {
+    
+    private long activeHolds;
+    private long heldUnits;
+    private long placedHolds;
+    private long confirmedHolds;
+    private long releasedHolds;
+    private long expiredHolds;
+    private long tickMs;
+    
+    // Getters and Setters
+    public long getActiveHolds() {
+        return activeHolds;
+    }
+    
+    public void setActiveHolds(long activeHolds) {
+        this.activeHolds = activeHolds;
+    }
+    
+    public long getHeldUnits() {
+        return heldUnits;
+    }
+    
+    public void setHeldUnits(long heldUnits) {
+        this.heldUnits = heldUnits;
+    }
+    
+    public long getPlacedHolds() {
+        return placedHolds;
+    }
+    
+    public void setPlacedHolds(long placedHolds) {
+        this.placedHolds = placedHolds;
+    }
+    
+    public long getConfirmedHolds() {
+        return confirmedHolds;
+    }
+    
+    public void setConfirmedHolds(long confirmedHolds) {
+        this.confirmedHolds = confirmedHolds;
+    }
+    
+    public long getReleasedHolds() {
+        return releasedHolds;
+    }
+    
+    public void setReleasedHolds(long releasedHolds) {
+        this.releasedHolds = releasedHolds;
+    }
+    
+    public long getExpiredHolds() {
+        return expiredHolds;
+    }
+    
+    public void setExpiredHolds(long expiredHolds) {
+        this.expiredHolds = expiredHolds;
+    }
+    
+    public long getTickMs() {
+        return tickMs;
+    }
+    
+    public void setTickMs(long tickMs) {
+        this.tickMs = tickMs;
+    }
+}
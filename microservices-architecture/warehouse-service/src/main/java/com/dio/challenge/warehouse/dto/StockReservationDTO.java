@@ -0,0 +1,65 @@
+package com.dio.challenge.warehouse.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import java.util.List;
+
+public class StockReservationDTO {
+    
+    @NotEmpty(message = "Reservation items are required")
+    @Valid
+    private List<ReservationItem> items;
+    
+    // Constructors
+    public StockReservationDTO() {}
+    
+    public StockReservationDTO(List<ReservationItem> items) {
+        this.items = items;
+    }
+    
+    // Getters and Setters
+    public List<ReservationItem> getItems() {
+        return items;
+    }
+    
+    public void setItems(List<ReservationItem> items) {
+        this.items = items;
+    }
+    
+    // Inner class for reservation items
+    public static class ReservationItem {
+        
+        @NotNull(message = "Product ID is required")
+        private Long productId;
+        
+        @NotNull(message = "Quantity is required")
+        @Positive(message = "Quantity must be positive")
+        private Integer quantity;
+        
+        public ReservationItem() {}
+        
+        public ReservationItem(Long productId, Integer quantity) {
+            this.productId = productId;
+            this.quantity = quantity;
+        }
+        
+        // Getters and Setters
+        public Long getProductId() {
+            return productId;
+        }
+        
+        public void setProductId(Long productId) {
+            this.productId = productId;
+        }
+        
+        public Integer getQuantity() {
+            return quantity;
+        }
+        
+        public void setQuantity(Integer quantity) {
+            this.quantity = quantity;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.dio.challenge.warehouse.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "outbox_events")
+public class OutboxEvent {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private String exchange;
+    
+    @Column(name = "routing_key", nullable = false)
+    private String routingKey;
+    
+    // Class name sent as the __TypeId__ header, as Jackson2JsonMessageConverter would
+    @Column(name = "payload_type", nullable = false)
+    private String payloadType;
+    
+    @Lob
+    @Column(nullable = false)
+    private String payload;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    // Set when the relay gave up on the event; it then stays in the table for inspection
+    @Column(name = "dead_lettered_at")
+    private LocalDateTime deadLetteredAt;
+    
+    @Column(length = 1000)
+    private String failure;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+    
+    // Constructors
+    public OutboxEvent() {}
+    
+    public OutboxEvent(String exchange, String routingKey, String payloadType, String payload) {
+        this.exchange = exchange;
+        this.routingKey = routingKey;
+        this.payloadType = payloadType;
+        this.payload = payload;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getExchange() {
+        return exchange;
+    }
+    
+    public void setExchange(String exchange) {
+        this.exchange = exchange;
+    }
+    
+    public String getRoutingKey() {
+        return routingKey;
+    }
+    
+    public void setRoutingKey(String routingKey) {
+        this.routingKey = routingKey;
+    }
+    
+    public String getPayloadType() {
+        return payloadType;
+    }
+    
+    public void setPayloadType(String payloadType) {
+        this.payloadType = payloadType;
+    }
+    
+    public String getPayload() {
+        return payload;
+    }
+    
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public LocalDateTime getDeadLetteredAt() {
+        return deadLetteredAt;
+    }
+    
+    public void setDeadLetteredAt(LocalDateTime deadLetteredAt) {
+        this.deadLetteredAt = deadLetteredAt;
+    }
+    
+    public String getFailure() {
+        return failure;
+    }
+    
+    public void setFailure(String failure) {
+        this.failure = failure;
+    }
+}
@@ -0,0 +1,32 @@
+package com.dio.challenge.warehouse.repository;
+
+import com.dio.challenge.warehouse.model.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    
+    // Pending events are the ones not dead-lettered
+    List<OutboxEvent> findAllByDeadLetteredAtIsNullOrderByIdAsc(Pageable pageable);
+    
+    long countByDeadLetteredAtIsNull();
+    
+    long countByDeadLetteredAtIsNotNull();
+    
+    @Query("SELECT MIN(o.createdAt) FROM OutboxEvent o WHERE o.deadLetteredAt IS NULL")
+    LocalDateTime findOldestCreatedAt();
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEvent o SET o.deadLetteredAt = :at, o.failure = :failure WHERE o.id = :id")
+    int deadLetter(@Param("id") Long id, @Param("at") LocalDateTime at, @Param("failure") String failure);
+}
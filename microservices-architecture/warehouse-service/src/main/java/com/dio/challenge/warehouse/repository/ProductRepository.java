@@ -1,21 +1,56 @@
 package com.dio.challenge.warehouse.repository;
 
 import com.dio.challenge.warehouse.model.Product;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     
-    List<Product> findByNameContainingIgnoreCase(String name);
-    
     @Query("SELECT p FROM Product p WHERE p.stockQuantity > 0")
     List<Product> findAvailableProducts();
     
+    @Query("SELECT COUNT(p) FROM Product p WHERE p.stockQuantity > 0")
+    long countAvailableProducts();
+    
     @Query("SELECT p FROM Product p WHERE p.stockQuantity <= :threshold")
     List<Product> findLowStockProducts(@Param("threshold") Integer threshold);
+    
+    // Keyset pages in catalog order: each page starts strictly after the (createdAt, id) of the
+    // previous page's last row, and the Pageable only carries the LIMIT
+    @Query("SELECT p FROM Product p WHERE p.createdAt > :createdAt OR (p.createdAt = :createdAt AND p.id > :id) " +
+            "ORDER BY p.createdAt ASC, p.id ASC")
+    List<Product> findPageAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    // Cursor-backed stream for NDJSON exports; must be consumed inside a transaction and closed
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT p FROM Product p ORDER BY p.createdAt ASC, p.id ASC")
+    Stream<Product> streamAll();
+    
+    // Guarded single-statement stock changes: the check and the write are one UPDATE, so
+    // concurrent orders cannot overwrite each other or oversell. They return the rows changed, 0
+    // when the product is missing or (decrement) short; units under an active hold (held) are not
+    // available to the decrement. The persistence context is cleared, so the caller reads the new
+    // count back in the same transaction
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity - :quantity, p.updatedAt = LOCAL DATETIME " +
+            "WHERE p.id = :id AND p.stockQuantity - :held >= :quantity")
+    int decrementStock(@Param("id") Long id, @Param("quantity") Integer quantity, @Param("held") Integer held);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity + :quantity, p.updatedAt = LOCAL DATETIME " +
+            "WHERE p.id = :id")
+    int incrementStock(@Param("id") Long id, @Param("quantity") Integer quantity);
 }
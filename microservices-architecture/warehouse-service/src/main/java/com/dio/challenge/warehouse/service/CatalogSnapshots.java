@@ -0,0 +1,273 @@
+package com.dio.challenge.warehouse.service;
+
+import com.dio.challenge.warehouse.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.zip.GZIPOutputStream;
+
+// The catalog listings (available products as a JSON array, every product as NDJSON) kept
+// serialized, plain and gzip-compressed, so a read costs a copy of bytes rather than a query and
+// a Jackson pass. A snapshot is rebuilt on the next tick after the catalog version moves, so a
+// write storm costs at most one rebuild per catalog.snapshot.rebuild-interval-ms, and listings
+// may lag writes by up to that interval. Each snapshot is tagged with the version it was built
+// from. Rebuilds run on their own thread, so a slow one never holds up other scheduled work.
+// A listing larger than catalog.snapshot.max-bytes is not kept and its endpoint reads it live;
+// serializing it stops at the limit, and it is not tried again until it has fewer rows than when
+// it went over, or catalog.snapshot.oversized-retry-ms has passed.
+@Component
+public class CatalogSnapshots {
+    
+    public static final String AVAILABLE = "available";
+    public static final String ALL = "ndjson";
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private CatalogVersion catalogVersion;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${catalog.snapshot.max-bytes:16777216}")
+    private int maxBytes;
+    
+    @Value("${catalog.snapshot.rebuild-interval-ms:200}")
+    private long rebuildIntervalMs;
+    
+    @Value("${catalog.snapshot.oversized-retry-ms:300000}")
+    private long oversizedRetryMs;
+    
+    private final Listing available = new Listing(AVAILABLE);
+    private final Listing all = new Listing(ALL);
+    private volatile long builtVersion = -1;
+    
+    private ScheduledExecutorService rebuilder;
+    
+    private Timer rebuildTimer;
+    private Counter oversized;
+    
+    @PostConstruct
+    void registerMetrics() {
+        rebuildTimer = Timer.builder("catalog.snapshot.rebuild")
+                .description("Time to query and serialize the catalog listings after the catalog changed")
+                .register(meterRegistry);
+        oversized = Counter.builder("catalog.snapshot.oversized")
+                .description("Rebuilds that left a listing to be read live because it exceeded the size limit")
+                .register(meterRegistry);
+        sizeGauge(AVAILABLE, "identity", false);
+        sizeGauge(AVAILABLE, "gzip", true);
+        sizeGauge(ALL, "identity", false);
+        sizeGauge(ALL, "gzip", true);
+    }
+    
+    // The first tick is the warm-up; until it finishes both listings are read live
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebuilder = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "catalog-snapshots");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rebuilder.scheduleWithFixedDelay(this::tick, 0, rebuildIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    void stop() {
+        if (rebuilder != null) {
+            rebuilder.shutdownNow();
+        }
+    }
+    
+    public void refresh() {
+        if (builtVersion != catalogVersion.current()) {
+            rebuild();
+        }
+    }
+    
+    // Null until the first build, or while the listing is over the size limit
+    public Snapshot getAvailable() {
+        return available.snapshot;
+    }
+    
+    public Snapshot getAll() {
+        return all.snapshot;
+    }
+    
+    // A failed run must not end the schedule; the version has not been marked built, so the next
+    // tick tries again
+    private void tick() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            System.out.println("Catalog snapshot rebuild failed, will retry: " + e.getMessage());
+        }
+    }
+    
+    // Synchronized so a tick and a direct refresh never build twice at once
+    private synchronized void rebuild() {
+        // Read first: the content is at least this new, so the tag never claims more than it holds
+        long version = catalogVersion.current();
+        rebuildTimer.record(() -> {
+            try {
+                build(available, version, productRepository::countAvailableProducts,
+                        out -> objectMapper.writeValue(out, productService.getAvailableProducts()));
+                build(all, version, productRepository::count, productService::exportProducts);
+                builtVersion = version;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+    
+    private void build(Listing listing, long version, LongSupplier rows, ListingWriter writer) throws IOException {
+        if (listing.oversizedRows >= 0 && rows.getAsLong() >= listing.oversizedRows
+                && System.currentTimeMillis() - listing.oversizedAt < oversizedRetryMs) {
+            return;
+        }
+        BoundedBuffer plain = new BoundedBuffer(maxBytes);
+        try {
+            writer.writeTo(plain);
+        } catch (IOException e) {
+            if (!plain.isExceeded()) {
+                throw e;
+            }
+            listing.snapshot = null;
+            listing.oversizedRows = rows.getAsLong();
+            listing.oversizedAt = System.currentTimeMillis();
+            oversized.increment();
+            return;
+        }
+        listing.oversizedRows = -1;
+        listing.snapshot = snapshot(listing.variant, version, plain.toByteArray());
+    }
+    
+    private Snapshot snapshot(String variant, long version, byte[] plain) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(plain.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(plain);
+        }
+        return new Snapshot(catalogVersion.catalogETag(variant, version),
+                catalogVersion.catalogETag(variant + "-gzip", version), plain, compressed.toByteArray());
+    }
+    
+    private void sizeGauge(String variant, String encoding, boolean gzip) {
+        Gauge.builder("catalog.snapshot.size", this, snapshots -> {
+                    Snapshot snapshot = AVAILABLE.equals(variant) ? snapshots.getAvailable() : snapshots.getAll();
+                    if (snapshot == null) {
+                        return Double.NaN;
+                    }
+                    return snapshot.getBody(gzip).length;
+                })
+                .description("Bytes of the serialized catalog listings")
+                .baseUnit("bytes")
+                .tag("variant", variant)
+                .tag("encoding", encoding)
+                .register(meterRegistry);
+    }
+    
+    private interface ListingWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+    
+    // A listing's current snapshot, and the row count it had when it last went over the size limit
+    // (-1 while it fits). The rows and time are only touched under the rebuild lock
+    private static class Listing {
+        private final String variant;
+        private volatile Snapshot snapshot;
+        private long oversizedRows = -1;
+        private long oversizedAt;
+        
+        private Listing(String variant) {
+            this.variant = variant;
+        }
+    }
+    
+    // Refuses the write that would take it past the limit, so serializing an oversized listing
+    // stops there instead of buffering all of it
+    private static class BoundedBuffer extends OutputStream {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final int limit;
+        private boolean exceeded;
+        
+        private BoundedBuffer(int limit) {
+            this.limit = limit;
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            reserve(1);
+            bytes.write(b);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            reserve(len);
+            bytes.write(b, off, len);
+        }
+        
+        private void reserve(int len) throws IOException {
+            if (bytes.size() + len > limit) {
+                exceeded = true;
+                throw new IOException("Listing exceeds " + limit + " bytes");
+            }
+        }
+        
+        private boolean isExceeded() {
+            return exceeded;
+        }
+        
+        private byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+    
+    // Never modified once built; responses write the arrays as they are. The two encodings are
+    // different representations, so each has its own strong ETag
+    public static class Snapshot {
+        private final String plainETag;
+        private final String gzipETag;
+        private final byte[] plain;
+        private final byte[] gzip;
+        
+        private Snapshot(String plainETag, String gzipETag, byte[] plain, byte[] gzip) {
+            this.plainETag = plainETag;
+            this.gzipETag = gzipETag;
+            this.plain = plain;
+            this.gzip = gzip;
+        }
+        
+        public String getETag(boolean compressed) {
+            return compressed ? gzipETag : plainETag;
+        }
+        
+        public byte[] getBody(boolean compressed) {
+            return compressed ? gzip : plain;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.dio.challenge.warehouse.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Version stamp of the catalog, moved by ProductService on every product write, from which the
+// product endpoints derive strong ETags: a conditional GET is answered 304 from the stamp alone,
+// before anything is read. A product's own version is the catalog version of its last change.
+// Versions move once the writing transaction has finished, committed or not, so a response is
+// never tagged newer than the data in it; the start time keeps tags unique across restarts.
+@Component
+public class CatalogVersion {
+    
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong catalog = new AtomicLong();
+    private final ConcurrentHashMap<Long, Long> products = new ConcurrentHashMap<>();
+    
+    // variant tells apart representations served at the same URL (e.g. a JSON page and the NDJSON
+    // export of /api/products)
+    public String catalogETag(String variant) {
+        return catalogETag(variant, catalog.get());
+    }
+    
+    // Tag of content built at an earlier version, e.g. a catalog snapshot
+    public String catalogETag(String variant, long version) {
+        return "\"" + epoch + "-" + version + "-" + variant + "\"";
+    }
+    
+    public long current() {
+        return catalog.get();
+    }
+    
+    public String productETag(Long productId) {
+        return "\"" + epoch + "-" + productId + "-" + products.getOrDefault(productId, 0L) + "\"";
+    }
+    
+    public void changed(Long productId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump(productId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                bump(productId);
+            }
+        });
+    }
+    
+    private void bump(Long productId) {
+        products.put(productId, catalog.incrementAndGet());
+    }
+}
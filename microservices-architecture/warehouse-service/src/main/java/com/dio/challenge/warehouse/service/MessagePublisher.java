@@ -3,31 +3,47 @@ package com.dio.challenge.warehouse.service;
 import com.dio.challenge.warehouse.config.RabbitMQConfig;
 import com.dio.challenge.warehouse.dto.LowStockAlertMessage;
 import com.dio.challenge.warehouse.dto.StockUpdateMessage;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import com.dio.challenge.warehouse.model.OutboxEvent;
+import com.dio.challenge.warehouse.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+// Events are written to the outbox in the caller's transaction and published by OutboxRelay,
+// so a rollback never leaves a published event behind and the broker is off the request path
 @Service
+@Transactional(propagation = Propagation.MANDATORY)
 public class MessagePublisher {
     
     @Autowired
-    private RabbitTemplate rabbitTemplate;
+    private OutboxEventRepository outboxEventRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
     
     public void publishStockUpdate(StockUpdateMessage message) {
-        rabbitTemplate.convertAndSend(
-                RabbitMQConfig.WAREHOUSE_EXCHANGE,
-                RabbitMQConfig.STOCK_UPDATE_ROUTING_KEY,
-                message
-        );
-        System.out.println("Published stock update message: " + message.getProductName());
+        enqueue(RabbitMQConfig.WAREHOUSE_EXCHANGE, RabbitMQConfig.STOCK_UPDATE_ROUTING_KEY, message);
+        System.out.println("Queued stock update message: " + message.getProductName());
     }
     
     public void publishLowStockAlert(LowStockAlertMessage message) {
-        rabbitTemplate.convertAndSend(
-                RabbitMQConfig.WAREHOUSE_EXCHANGE,
-                RabbitMQConfig.LOW_STOCK_ALERT_ROUTING_KEY,
-                message
-        );
-        System.out.println("Published low stock alert: " + message.getProductName());
+        enqueue(RabbitMQConfig.WAREHOUSE_EXCHANGE, RabbitMQConfig.LOW_STOCK_ALERT_ROUTING_KEY, message);
+        System.out.println("Queued low stock alert: " + message.getProductName());
+    }
+    
+    private void enqueue(String exchange, String routingKey, Object message) {
+        try {
+            outboxEventRepository.save(new OutboxEvent(
+                    exchange,
+                    routingKey,
+                    message.getClass().getName(),
+                    objectMapper.writeValueAsString(message)
+            ));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + message.getClass().getSimpleName(), e);
+        }
     }
 }
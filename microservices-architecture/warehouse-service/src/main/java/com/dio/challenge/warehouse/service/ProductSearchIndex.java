@@ -0,0 +1,385 @@
+package com.dio.challenge.warehouse.service;
+
+import com.dio.challenge.warehouse.model.Product;
+import com.dio.challenge.warehouse.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Trigram inverted index over product name and description. Every word is indexed with a leading
+// space, so " sm", "sma", "mar", ... point at the products containing them; a query only has to
+// intersect the posting lists of its own trigrams and confirm the survivors, instead of running
+// LIKE '%x%' over the whole table
+@Service
+public class ProductSearchIndex {
+    
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+    
+    // Rebuild once stale documents outnumber live ones, so posting lists do not keep growing
+    private static final int MIN_TOMBSTONES_FOR_COMPACTION = 1024;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    // Documents are append-only: an update tombstones the old document and appends a new one,
+    // which keeps every posting list sorted by document id
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private final Map<Long, Integer> documentByProductId = new HashMap<>();
+    // How many live products have each word and trigram in their name, to bound the best score
+    // a query can reach
+    private final Map<String, Integer> nameWordCounts = new HashMap<>();
+    private final Map<Long, Integer> nameGramCounts = new HashMap<>();
+    private final BitSet tombstones = new BitSet();
+    private long[] productIds = new long[1024];
+    private String[] names = new String[1024];
+    private String[] descriptions = new String[1024];
+    private int documentCount = 0;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long start = System.nanoTime();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            lock.writeLock().lock();
+            try {
+                clear();
+                try (Stream<Product> products = productRepository.streamAll()) {
+                    products.forEach(product -> add(product.getId(), product.getName(), product.getDescription()));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+        System.out.println("Product search index built with " + size() + " products in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+    
+    // Applied once the surrounding transaction commits, so a rolled back change is never searchable
+    public void index(Product product) {
+        Long productId = product.getId();
+        String name = product.getName();
+        String description = product.getDescription();
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                removeDocument(productId);
+                add(productId, name, description);
+                compactIfNeeded();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+    
+    public void remove(Long productId) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                removeDocument(productId);
+                compactIfNeeded();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+    
+    // Product ids ranked best first: whole-word name matches, then name prefixes, then name
+    // substrings, then description-only matches; ties go to the product indexed first. Words
+    // shorter than three characters match the start of a word, and single characters are ignored
+    public List<Long> search(String query, int limit) {
+        String[] terms = tokenize(normalize(query)).stream()
+                .filter(term -> term.length() >= 2)
+                .toArray(String[]::new);
+        if (terms.length == 0 || limit < 1) {
+            return List.of();
+        }
+        Set<Long> queryGrams = new HashSet<>();
+        String[] wordStarts = new String[terms.length];
+        String[] wholeWords = new String[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            addGrams(terms[i].length() < 3 ? " " + terms[i] : terms[i], queryGrams);
+            wordStarts[i] = " " + terms[i];
+            wholeWords[i] = " " + terms[i] + " ";
+        }
+        
+        lock.readLock().lock();
+        try {
+            PostingList[] lists = new PostingList[queryGrams.size()];
+            int listCount = 0;
+            for (Long gram : queryGrams) {
+                PostingList list = postings.get(gram);
+                if (list == null) {
+                    return List.of();
+                }
+                lists[listCount++] = list;
+            }
+            // Walk the shortest list and probe the others, so the cost follows the rarest trigram
+            Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+            
+            // Documents are visited in index order, which is also the tie-break, so the scan can
+            // stop as soon as the top results all have the best score any product could reach
+            int bestPossibleScore = 0;
+            for (String term : terms) {
+                bestPossibleScore += bestPossibleScore(term);
+            }
+            
+            PriorityQueue<Match> best = new PriorityQueue<>(Comparator.reverseOrder());
+            PostingList shortest = lists[0];
+            for (int i = 0; i < shortest.size; i++) {
+                int document = shortest.documents[i];
+                if (tombstones.get(document) || !containsAll(lists, document)) {
+                    continue;
+                }
+                int score = score(document, terms, wordStarts, wholeWords);
+                if (score == 0) {
+                    continue;
+                }
+                best.add(new Match(document, score, productIds[document]));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+                if (best.size() == limit && best.peek().score() >= bestPossibleScore) {
+                    break;
+                }
+            }
+            
+            // The queue pops the weakest match first
+            Long[] ranked = new Long[best.size()];
+            for (int i = ranked.length - 1; i >= 0; i--) {
+                ranked[i] = best.poll().productId();
+            }
+            return Arrays.asList(ranked);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentByProductId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private int bestPossibleScore(String term) {
+        if (nameWordCounts.containsKey(term)) {
+            return 4;
+        }
+        Set<Long> grams = new HashSet<>();
+        addGrams(term.length() < 3 ? " " + term : term, grams);
+        return nameGramCounts.keySet().containsAll(grams) ? 3 : 1;
+    }
+    
+    private boolean containsAll(PostingList[] lists, int document) {
+        for (int i = 1; i < lists.length; i++) {
+            if (Arrays.binarySearch(lists[i].documents, 0, lists[i].size, document) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    // The trigrams only say the characters are present; this confirms each term really appears
+    private int score(int document, String[] terms, String[] wordStarts, String[] wholeWords) {
+        String name = names[document];
+        String description = descriptions[document];
+        int score = 0;
+        for (int i = 0; i < terms.length; i++) {
+            boolean prefixOnly = terms[i].length() < 3;
+            int termScore;
+            if (name.contains(wholeWords[i])) {
+                termScore = 4;
+            } else if (name.contains(wordStarts[i])) {
+                termScore = 3;
+            } else if (!prefixOnly && name.contains(terms[i])) {
+                termScore = 2;
+            } else if (description.contains(prefixOnly ? wordStarts[i] : terms[i])) {
+                termScore = 1;
+            } else {
+                return 0;
+            }
+            score += termScore;
+        }
+        return score;
+    }
+    
+    private void add(Long productId, String name, String description) {
+        int document = documentCount++;
+        if (document == productIds.length) {
+            int capacity = productIds.length * 2;
+            productIds = Arrays.copyOf(productIds, capacity);
+            names = Arrays.copyOf(names, capacity);
+            descriptions = Arrays.copyOf(descriptions, capacity);
+        }
+        // Stored between spaces so word starts and whole words are plain contains() checks
+        String normalizedName = " " + normalize(name) + " ";
+        String normalizedDescription = " " + normalize(description) + " ";
+        productIds[document] = productId;
+        names[document] = normalizedName;
+        descriptions[document] = normalizedDescription;
+        documentByProductId.put(productId, document);
+        
+        Set<Long> grams = nameGrams(normalizedName);
+        for (Long gram : grams) {
+            nameGramCounts.merge(gram, 1, Integer::sum);
+        }
+        for (String word : new HashSet<>(tokenize(normalizedName))) {
+            nameWordCounts.merge(word, 1, Integer::sum);
+        }
+        for (String word : tokenize(normalizedDescription)) {
+            addGrams(" " + word, grams);
+        }
+        for (Long gram : grams) {
+            postings.computeIfAbsent(gram, key -> new PostingList()).add(document);
+        }
+    }
+    
+    private void removeDocument(Long productId) {
+        Integer document = documentByProductId.remove(productId);
+        if (document != null) {
+            for (Long gram : nameGrams(names[document])) {
+                nameGramCounts.computeIfPresent(gram, (key, count) -> count == 1 ? null : count - 1);
+            }
+            for (String word : new HashSet<>(tokenize(names[document]))) {
+                nameWordCounts.computeIfPresent(word, (key, count) -> count == 1 ? null : count - 1);
+            }
+            tombstones.set(document);
+            names[document] = null;
+            descriptions[document] = null;
+        }
+    }
+    
+    private void compactIfNeeded() {
+        int stale = tombstones.cardinality();
+        if (stale < MIN_TOMBSTONES_FOR_COMPACTION || stale < documentByProductId.size()) {
+            return;
+        }
+        long[] liveIds = new long[documentByProductId.size()];
+        String[] liveNames = new String[liveIds.length];
+        String[] liveDescriptions = new String[liveIds.length];
+        int live = 0;
+        for (int document = 0; document < documentCount; document++) {
+            if (!tombstones.get(document)) {
+                liveIds[live] = productIds[document];
+                liveNames[live] = names[document];
+                liveDescriptions[live] = descriptions[document];
+                live++;
+            }
+        }
+        clear();
+        for (int i = 0; i < live; i++) {
+            add(liveIds[i], liveNames[i], liveDescriptions[i]);
+        }
+    }
+    
+    private void clear() {
+        postings.clear();
+        documentByProductId.clear();
+        nameWordCounts.clear();
+        nameGramCounts.clear();
+        tombstones.clear();
+        documentCount = 0;
+    }
+    
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+    
+    // Lower case without accents, with anything that is not a letter or digit turned into a space
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String plain = DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+        return NON_ALPHANUMERIC.matcher(plain).replaceAll(" ").trim();
+    }
+    
+    private static List<String> tokenize(String normalized) {
+        List<String> words = new ArrayList<>();
+        for (String word : normalized.split(" ")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+    
+    private static Set<Long> nameGrams(String normalizedName) {
+        Set<Long> grams = new HashSet<>();
+        for (String word : tokenize(normalizedName)) {
+            addGrams(" " + word, grams);
+        }
+        return grams;
+    }
+    
+    // Three UTF-16 chars packed into one long key
+    private static void addGrams(String text, Set<Long> grams) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            grams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+    }
+    
+    // Growable sorted array of document ids
+    private static final class PostingList {
+        private int[] documents = new int[4];
+        private int size = 0;
+        
+        private void add(int document) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+            }
+            documents[size++] = document;
+        }
+    }
+    
+    private record Match(int document, int score, long productId) implements Comparable<Match> {
+        
+        // Natural order is best first
+        @Override
+        public int compareTo(Match other) {
+            if (score != other.score) {
+                return Integer.compare(other.score, score);
+            }
+            return Integer.compare(document, other.document);
+        }
+    }
+}
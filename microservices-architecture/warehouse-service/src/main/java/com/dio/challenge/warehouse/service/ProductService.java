@@ -1,18 +1,44 @@
 package com.dio.challenge.warehouse.service;
 
+import com.dio.challenge.warehouse.dto.CursorPageDTO;
+import com.dio.challenge.warehouse.dto.LowStockAlertMessage;
+import com.dio.challenge.warehouse.dto.PageCursor;
 import com.dio.challenge.warehouse.dto.ProductDTO;
+import com.dio.challenge.warehouse.dto.StockHoldDTO;
+import com.dio.challenge.warehouse.dto.StockHoldResultDTO;
+import com.dio.challenge.warehouse.dto.StockReservationDTO;
+import com.dio.challenge.warehouse.dto.StockReservationResultDTO;
 import com.dio.challenge.warehouse.dto.StockUpdateDTO;
+import com.dio.challenge.warehouse.dto.StockUpdateMessage;
 import com.dio.challenge.warehouse.model.Product;
 import com.dio.challenge.warehouse.repository.ProductRepository;
-import com.dio.challenge.warehouse.rabbitmq.MessagePublisher;
-import com.dio.challenge.warehouse.rabbitmq.StockUpdateMessage;
-import com.dio.challenge.warehouse.rabbitmq.LowStockAlertMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -24,22 +50,187 @@ public class ProductService {
     @Autowired
     private MessagePublisher messagePublisher;
     
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+    
+    @Autowired
+    private StockHoldService stockHoldService;
+    
+    @Autowired
+    private CatalogVersion catalogVersion;
+    
+    @Autowired
+    private StockReservationLog stockReservationLog;
+    
+    // Present only when warehouse.stock-ledger.enabled=true; on-hand counts are then read and
+    // changed in memory and written behind to the products table
+    @Autowired(required = false)
+    private StockLedger stockLedger;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Value("${pagination.default-page-size:50}")
+    private int defaultPageSize;
+    
+    @Value("${pagination.max-page-size:500}")
+    private int maxPageSize;
+    
+    @Value("${search.default-limit:20}")
+    private int defaultSearchLimit;
+    
+    @Value("${search.max-limit:100}")
+    private int maxSearchLimit;
+    
+    @Value("${products.batch.max-size:500}")
+    private int maxBatchSize;
+    
     private static final Integer LOW_STOCK_THRESHOLD = 10;
     
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    // Rows written between flushes of an NDJSON export
+    private static final int EXPORT_FLUSH_INTERVAL = 500;
+    
+    private static final List<String> STOCK_OPERATIONS = List.of("ADD", "SUBTRACT", "OTHER");
+    private static final List<String> STOCK_UPDATE_OUTCOMES = List.of("updated", "not_found", "invalid",
+            "insufficient_stock", "failed");
+    
+    // Catalog pages run oldest first, so the first page starts above any real (createdAt, id)
+    private static final PageCursor FIRST_PAGE = new PageCursor(LocalDateTime.of(1, 1, 1, 0, 0), 0L);
+    
+    // Timers by operation, then outcome; registered up front so that timing a stock change is two
+    // lookups in small maps, not a registry lookup
+    private final Map<String, Map<String, Timer>> stockUpdateTimers = new HashMap<>();
+    private Timer reservedTimer;
+    private Timer rejectedTimer;
+    
+    @PostConstruct
+    void registerMetrics() {
+        for (String operation : STOCK_OPERATIONS) {
+            Map<String, Timer> byOutcome = new HashMap<>();
+            for (String outcome : STOCK_UPDATE_OUTCOMES) {
+                byOutcome.put(outcome, stockTimer("stock.update", "Stock changes, by operation and outcome",
+                        "operation", operation, "outcome", outcome));
+            }
+            stockUpdateTimers.put(operation, byOutcome);
+        }
+        reservedTimer = stockTimer("stock.reservation", "Batch stock reservations, by outcome", "outcome", "reserved");
+        rejectedTimer = stockTimer("stock.reservation", "Batch stock reservations, by outcome", "outcome", "rejected");
+    }
+    
+    // Fetches one row past the page size to tell whether another page exists
+    @Transactional(readOnly = true)
+    public CursorPageDTO<Product> getProducts(String cursor, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        PageCursor after = PageCursor.decode(cursor);
+        if (after == null) {
+            after = FIRST_PAGE;
+        }
+        List<Product> rows = productRepository.findPageAfter(after.getCreatedAt(), after.getId(),
+                PageRequest.ofSize(pageSize + 1));
+        if (rows.size() <= pageSize) {
+            return new CursorPageDTO<>(rows, null, pageSize);
+        }
+        List<Product> items = rows.subList(0, pageSize);
+        Product last = items.get(pageSize - 1);
+        return new CursorPageDTO<>(items, new PageCursor(last.getCreatedAt(), last.getId()).encode(), pageSize);
+    }
+    
+    // Writes every product as one JSON line. Rows are detached once written, so memory stays flat
+    // however large the catalog is
+    @Transactional(readOnly = true)
+    public long exportProducts(OutputStream out) throws IOException {
+        long written = 0;
+        try (Stream<Product> products = productRepository.streamAll()) {
+            for (Product product : (Iterable<Product>) products::iterator) {
+                out.write(objectMapper.writeValueAsBytes(product));
+                out.write('\n');
+                entityManager.detach(product);
+                if (++written % EXPORT_FLUSH_INTERVAL == 0) {
+                    out.flush();
+                }
+            }
+        }
+        out.flush();
+        return written;
     }
     
     public Optional<Product> getProductById(Long id) {
+        if (stockLedger != null) {
+            return stockLedger.getProduct(id);
+        }
         return productRepository.findById(id);
     }
     
+    // Products in the order their ids were given, each once; ids that do not exist are left out.
+    // One query for the whole batch, or none with the stock ledger
+    @Transactional(readOnly = true)
+    public List<Product> getProductsByIds(List<Long> ids) {
+        if (ids.size() > maxBatchSize) {
+            throw new IllegalArgumentException("At most " + maxBatchSize + " product ids per batch");
+        }
+        Set<Long> uniqueIds = new LinkedHashSet<>();
+        for (Long id : ids) {
+            if (id == null) {
+                throw new IllegalArgumentException("Product ids must not be null");
+            }
+            uniqueIds.add(id);
+        }
+        List<Product> products = new ArrayList<>(uniqueIds.size());
+        if (stockLedger != null) {
+            for (Long id : uniqueIds) {
+                stockLedger.getProduct(id).ifPresent(products::add);
+            }
+            return products;
+        }
+        if (uniqueIds.isEmpty()) {
+            return products;
+        }
+        Map<Long, Product> productsById = new HashMap<>();
+        for (Product product : productRepository.findAllById(uniqueIds)) {
+            productsById.put(product.getId(), product);
+        }
+        for (Long id : uniqueIds) {
+            Product product = productsById.get(id);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+    
     public List<Product> getAvailableProducts() {
         return productRepository.findAvailableProducts();
     }
     
-    public List<Product> searchProductsByName(String name) {
-        return productRepository.findByNameContainingIgnoreCase(name);
+    // Ranked by the in-memory search index; the database is only asked for the matched rows
+    @Transactional(readOnly = true)
+    public List<Product> searchProducts(String query, Integer limit) {
+        int resultLimit = limit == null ? defaultSearchLimit : Math.min(limit, maxSearchLimit);
+        if (resultLimit < 1) {
+            throw new IllegalArgumentException("Result limit must be at least 1");
+        }
+        List<Long> rankedIds = productSearchIndex.search(query, resultLimit);
+        if (rankedIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Product> productsById = new HashMap<>();
+        for (Product product : productRepository.findAllById(rankedIds)) {
+            productsById.put(product.getId(), product);
+        }
+        List<Product> ranked = new ArrayList<>(rankedIds.size());
+        for (Long productId : rankedIds) {
+            Product product = productsById.get(productId);
+            if (product != null) {
+                ranked.add(product);
+            }
+        }
+        return ranked;
     }
     
     public Product createProduct(ProductDTO productDTO) {
@@ -49,7 +240,13 @@ public class ProductService {
         product.setPrice(productDTO.getPrice());
         product.setStockQuantity(productDTO.getStockQuantity());
         
-        return productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        productSearchIndex.index(savedProduct);
+        if (stockLedger != null) {
+            stockLedger.put(savedProduct);
+        }
+        catalogVersion.changed(savedProduct.getId());
+        return savedProduct;
     }
     
     public Optional<Product> updateProduct(Long id, ProductDTO productDTO) {
@@ -59,66 +256,329 @@ public class ProductService {
                     product.setDescription(productDTO.getDescription());
                     product.setPrice(productDTO.getPrice());
                     product.setStockQuantity(productDTO.getStockQuantity());
-                    return productRepository.save(product);
+                    // Flushed, so the row is locked before the ledger takes the new count
+                    Product savedProduct = productRepository.saveAndFlush(product);
+                    productSearchIndex.index(savedProduct);
+                    if (stockLedger != null) {
+                        stockLedger.put(savedProduct);
+                    }
+                    catalogVersion.changed(savedProduct.getId());
+                    return savedProduct;
                 });
     }
     
     public boolean deleteProduct(Long id) {
         if (productRepository.existsById(id)) {
             productRepository.deleteById(id);
+            productSearchIndex.remove(id);
+            if (stockLedger != null) {
+                stockLedger.remove(id);
+            }
+            catalogVersion.changed(id);
             return true;
         }
         return false;
     }
     
+    // Timed as stock.update by operation, outcome and where the count lives
     public Optional<Product> updateStock(StockUpdateDTO stockUpdateDTO) {
-        return productRepository.findById(stockUpdateDTO.getProductId())
-                .map(product -> {
-                    int previousStock = product.getStockQuantity();
-                    int currentStock;
-                    
-                    if ("ADD".equalsIgnoreCase(stockUpdateDTO.getOperation())) {
-                        currentStock = previousStock + stockUpdateDTO.getQuantity();
-                    } else if ("SUBTRACT".equalsIgnoreCase(stockUpdateDTO.getOperation())) {
-                        currentStock = Math.max(0, previousStock - stockUpdateDTO.getQuantity());
-                    } else {
-                        throw new IllegalArgumentException("Invalid operation. Use 'ADD' or 'SUBTRACT'");
-                    }
-                    
-                    product.setStockQuantity(currentStock);
-                    Product savedProduct = productRepository.save(product);
-                    
-                    StockUpdateMessage stockMessage = new StockUpdateMessage(
-                            product.getId(),
-                            product.getName(),
-                            previousStock,
-                            currentStock,
-                            stockUpdateDTO.getQuantity(),
-                            stockUpdateDTO.getOperation()
-                    );
-                    messagePublisher.publishStockUpdate(stockMessage);
-                    
-                    if (currentStock <= LOW_STOCK_THRESHOLD) {
-                        LowStockAlertMessage alertMessage = new LowStockAlertMessage(
-                                product.getId(),
-                                product.getName(),
-                                currentStock,
-                                LOW_STOCK_THRESHOLD
-                        );
-                        messagePublisher.publishLowStockAlert(alertMessage);
+        long started = System.nanoTime();
+        String outcome = "failed";
+        try {
+            Optional<Product> updated = applyStockUpdate(stockUpdateDTO);
+            outcome = updated.isPresent() ? "updated" : "not_found";
+            return updated;
+        } catch (IllegalArgumentException e) {
+            outcome = "invalid";
+            throw e;
+        } catch (IllegalStateException e) {
+            outcome = "insufficient_stock";
+            throw e;
+        } finally {
+            String operation = stockUpdateDTO.getOperation();
+            String operationTag = "ADD".equalsIgnoreCase(operation) ? "ADD"
+                    : "SUBTRACT".equalsIgnoreCase(operation) ? "SUBTRACT" : "OTHER";
+            stockUpdateTimers.get(operationTag).get(outcome).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    private Optional<Product> applyStockUpdate(StockUpdateDTO stockUpdateDTO) {
+        Long productId = stockUpdateDTO.getProductId();
+        int quantity = stockUpdateDTO.getQuantity();
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        if (stockLedger != null) {
+            return updateStockInLedger(productId, quantity, stockUpdateDTO.getOperation());
+        }
+        
+        Optional<Product> updated;
+        int previousStock;
+        if ("ADD".equalsIgnoreCase(stockUpdateDTO.getOperation())) {
+            updated = changed(productId, productRepository.incrementStock(productId, quantity));
+            previousStock = updated.map(product -> product.getStockQuantity() - quantity).orElse(0);
+        } else if ("SUBTRACT".equalsIgnoreCase(stockUpdateDTO.getOperation())) {
+            updated = stockHoldService.guard(List.of(productId), () ->
+                    changed(productId, productRepository.decrementStock(productId, quantity,
+                            stockHoldService.heldQuantity(productId))));
+            if (updated.isEmpty() && productRepository.existsById(productId)) {
+                throw new IllegalStateException("Insufficient stock for product ID: " + productId);
+            }
+            previousStock = updated.map(product -> product.getStockQuantity() + quantity).orElse(0);
+        } else {
+            throw new IllegalArgumentException("Invalid operation. Use 'ADD' or 'SUBTRACT'");
+        }
+        
+        updated.ifPresent(product -> publishStockChange(product.getId(), product.getName(), previousStock,
+                product.getStockQuantity(), quantity, stockUpdateDTO.getOperation()));
+        return updated;
+    }
+    
+    // Only the outbox insert reaches the database; the count itself is flushed later
+    private Optional<Product> updateStockInLedger(Long productId, int quantity, String operation) {
+        Optional<StockLedger.StockChange> change;
+        int delta;
+        if ("ADD".equalsIgnoreCase(operation)) {
+            change = stockLedger.add(productId, quantity);
+            delta = quantity;
+        } else if ("SUBTRACT".equalsIgnoreCase(operation)) {
+            change = stockHoldService.guard(List.of(productId), () ->
+                    stockLedger.subtract(productId, quantity, stockHoldService.heldQuantity(productId)));
+            if (change.isEmpty() && stockLedger.contains(productId)) {
+                throw new IllegalStateException("Insufficient stock for product ID: " + productId);
+            }
+            delta = -quantity;
+        } else {
+            throw new IllegalArgumentException("Invalid operation. Use 'ADD' or 'SUBTRACT'");
+        }
+        
+        change.ifPresent(applied -> {
+            stockLedger.undoOnRollback(productId, delta);
+            Product product = applied.getProduct();
+            publishStockChange(product.getId(), product.getName(), applied.getPreviousStock(),
+                    product.getStockQuantity(), quantity, operation);
+        });
+        return change.map(StockLedger.StockChange::getProduct);
+    }
+    
+    public StockReservationResultDTO reserveStock(StockReservationDTO reservationDTO) {
+        return reserveStock(reservationDTO, null);
+    }
+    
+    // With a reservation key, a call repeating one that already took the stock (its response was
+    // lost, say) gets the recorded answer back instead of taking the stock a second time
+    public StockReservationResultDTO reserveStock(StockReservationDTO reservationDTO, String reservationKey) {
+        if (reservationKey != null) {
+            Optional<StockReservationResultDTO> recorded = stockReservationLog.find(reservationKey);
+            if (recorded.isPresent()) {
+                return recorded.get();
+            }
+        }
+        // Merge repeated lines for the same product so each one is checked against its total
+        Map<Long, Integer> requested = new LinkedHashMap<>();
+        for (StockReservationDTO.ReservationItem item : reservationDTO.getItems()) {
+            requested.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        long started = System.nanoTime();
+        StockReservationResultDTO result = stockHoldService.guard(requested.keySet(), () -> reserve(requested));
+        if (reservationKey != null && result.isReserved()) {
+            stockReservationLog.record(reservationKey, result);
+        }
+        (result.isReserved() ? reservedTimer : rejectedTimer).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return result;
+    }
+    
+    // Gives back the stock a keyed reservation took and forgets the key in the same transaction, so
+    // a later call with the key reserves afresh rather than replaying stock that is on hand again.
+    // False if nothing is recorded under the key
+    public boolean releaseReservation(String reservationKey) {
+        Optional<StockReservationResultDTO> recorded = stockReservationLog.remove(reservationKey);
+        recorded.ifPresent(result -> {
+            for (StockReservationResultDTO.ReservedItem item : result.getItems()) {
+                applyStockUpdate(new StockUpdateDTO(item.getProductId(), item.getQuantity(), "ADD"));
+            }
+        });
+        return recorded.isPresent();
+    }
+    
+    // Places a time-limited hold on every line, or on none if any line is short
+    public StockHoldResultDTO holdStock(StockHoldDTO holdDTO) {
+        Map<Long, Integer> requested = new LinkedHashMap<>();
+        for (StockReservationDTO.ReservationItem item : holdDTO.getItems()) {
+            requested.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        
+        return stockHoldService.guard(requested.keySet(), () -> {
+            Map<Long, Integer> onHand = new HashMap<>();
+            if (stockLedger != null) {
+                for (Long productId : requested.keySet()) {
+                    stockLedger.available(productId).ifPresent(stock -> onHand.put(productId, stock));
+                }
+            } else {
+                for (Product product : productRepository.findAllById(requested.keySet())) {
+                    onHand.put(product.getId(), product.getStockQuantity());
+                }
+            }
+            return stockHoldService.hold(requested, onHand, holdDTO.getTtlSeconds());
+        });
+    }
+    
+    // Turns a hold into a reservation: the held units are taken from on-hand stock. Empty if the
+    // hold does not exist or has expired. The hold's products are locked before it is taken, so no
+    // one else can claim its units between the hold going and the stock being taken
+    public Optional<StockReservationResultDTO> confirmHold(Long holdId) {
+        return stockHoldService.find(holdId).flatMap(found ->
+                stockHoldService.guard(found.getLines().keySet(), () -> stockHoldService.take(holdId).map(hold -> {
+                    StockReservationResultDTO result = reserve(hold.getLines());
+                    if (!result.isReserved()) {
+                        // Stock was removed under the hold; rolling back puts the hold back
+                        TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
                     }
-                    
-                    return savedProduct;
-                });
+                    return result;
+                })));
+    }
+    
+    public boolean releaseHold(Long holdId) {
+        return stockHoldService.release(holdId);
+    }
+    
+    // Callers hold the guard for every requested product
+    private StockReservationResultDTO reserve(Map<Long, Integer> requested) {
+        if (stockLedger != null) {
+            return reserveStockInLedger(requested);
+        }
+        
+        List<StockReservationResultDTO.ReservedItem> reservedItems = new ArrayList<>();
+        List<StockReservationResultDTO.ReservationFailure> failures = new ArrayList<>();
+        requested.forEach((productId, quantity) -> {
+            int held = stockHoldService.heldQuantity(productId);
+            Optional<Product> updated = changed(productId, productRepository.decrementStock(productId, quantity, held));
+            if (updated.isPresent()) {
+                Product product = updated.get();
+                reservedItems.add(new StockReservationResultDTO.ReservedItem(
+                        product.getId(), product.getName(), quantity, product.getPrice(), product.getStockQuantity()));
+            } else {
+                failures.add(productRepository.findById(productId)
+                        .map(product -> new StockReservationResultDTO.ReservationFailure(
+                                productId, quantity, Math.max(product.getStockQuantity() - held, 0), "INSUFFICIENT_STOCK"))
+                        .orElseGet(() -> new StockReservationResultDTO.ReservationFailure(
+                                productId, quantity, 0, "PRODUCT_NOT_FOUND")));
+            }
+        });
+        
+        if (!failures.isEmpty()) {
+            // Undo the lines that were already decremented
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return new StockReservationResultDTO(false, new ArrayList<>(), failures);
+        }
+        
+        for (StockReservationResultDTO.ReservedItem item : reservedItems) {
+            publishStockChange(item.getProductId(), item.getProductName(),
+                    item.getRemainingStock() + item.getQuantity(), item.getRemainingStock(), item.getQuantity(), "SUBTRACT");
+        }
+        
+        return new StockReservationResultDTO(true, reservedItems, new ArrayList<>());
     }
     
+    // The row a guarded UPDATE changed, as it is now; empty if the UPDATE matched nothing
+    private Optional<Product> changed(Long productId, int rows) {
+        return rows == 0 ? Optional.empty() : productRepository.findById(productId);
+    }
+    
+    private StockReservationResultDTO reserveStockInLedger(Map<Long, Integer> requested) {
+        List<StockReservationResultDTO.ReservedItem> reservedItems = new ArrayList<>();
+        List<StockReservationResultDTO.ReservationFailure> failures = new ArrayList<>();
+        requested.forEach((productId, quantity) -> {
+            int held = stockHoldService.heldQuantity(productId);
+            Optional<StockLedger.StockChange> change = stockLedger.subtract(productId, quantity, held);
+            if (change.isPresent()) {
+                Product product = change.get().getProduct();
+                reservedItems.add(new StockReservationResultDTO.ReservedItem(
+                        product.getId(), product.getName(), quantity, product.getPrice(), product.getStockQuantity()));
+            } else {
+                failures.add(new StockReservationResultDTO.ReservationFailure(productId, quantity,
+                        Math.max(stockLedger.available(productId).orElse(0) - held, 0),
+                        stockLedger.contains(productId) ? "INSUFFICIENT_STOCK" : "PRODUCT_NOT_FOUND"));
+            }
+        });
+        
+        if (!failures.isEmpty()) {
+            // Give back the lines that were already taken; readers may have seen them taken
+            for (StockReservationResultDTO.ReservedItem item : reservedItems) {
+                stockLedger.add(item.getProductId(), item.getQuantity());
+                catalogVersion.changed(item.getProductId());
+            }
+            return new StockReservationResultDTO(false, new ArrayList<>(), failures);
+        }
+        
+        for (StockReservationResultDTO.ReservedItem item : reservedItems) {
+            stockLedger.undoOnRollback(item.getProductId(), -item.getQuantity());
+            publishStockChange(item.getProductId(), item.getProductName(),
+                    item.getRemainingStock() + item.getQuantity(), item.getRemainingStock(), item.getQuantity(), "SUBTRACT");
+        }
+        
+        return new StockReservationResultDTO(true, reservedItems, new ArrayList<>());
+    }
+    
+    // Every stock change ends up here, so this is also where the catalog version moves. With the
+    // ledger on it moves again when the change is flushed to the products table
+    private void publishStockChange(Long productId, String productName, int previousStock, int currentStock,
+                                    int quantity, String operation) {
+        catalogVersion.changed(productId);
+        StockUpdateMessage stockMessage = new StockUpdateMessage(
+                productId,
+                productName,
+                previousStock,
+                currentStock,
+                quantity,
+                operation
+        );
+        messagePublisher.publishStockUpdate(stockMessage);
+        
+        if (currentStock <= LOW_STOCK_THRESHOLD) {
+            LowStockAlertMessage alertMessage = new LowStockAlertMessage(
+                    productId,
+                    productName,
+                    currentStock,
+                    LOW_STOCK_THRESHOLD
+            );
+            messagePublisher.publishLowStockAlert(alertMessage);
+        }
+    }
+    
+    // Available means on hand and not under an active hold
     public boolean checkStockAvailability(Long productId, Integer requiredQuantity) {
+        int held = stockHoldService.heldQuantity(productId);
+        if (stockLedger != null) {
+            OptionalInt available = stockLedger.available(productId);
+            return available.isPresent() && available.getAsInt() - held >= requiredQuantity;
+        }
         return productRepository.findById(productId)
-                .map(product -> product.getStockQuantity() >= requiredQuantity)
+                .map(product -> product.getStockQuantity() - held >= requiredQuantity)
                 .orElse(false);
     }
     
     public List<Product> getLowStockProducts(Integer threshold) {
         return productRepository.findLowStockProducts(threshold);
     }
+    
+    // The store tag is fixed for the life of the service: the ledger is on or off from startup
+    private Timer stockTimer(String name, String description, String... tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .tag("store", stockLedger != null ? "ledger" : "database")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+    
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        return Math.min(limit, maxPageSize);
+    }
 }
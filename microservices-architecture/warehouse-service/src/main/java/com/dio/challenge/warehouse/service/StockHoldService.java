@@ -0,0 +1,310 @@
+package com.dio.challenge.warehouse.service;
+
+import com.dio.challenge.warehouse.dto.StockHoldResultDTO;
+import com.dio.challenge.warehouse.dto.StockHoldStatsDTO;
+import com.dio.challenge.warehouse.dto.StockReservationDTO;
+import com.dio.challenge.warehouse.dto.StockReservationResultDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Time-limited holds on stock for checkouts in progress. A hold does not change on-hand stock; it
+// lowers what everyone else can take (available = on-hand - held) until it is confirmed, released
+// or expires. Holds live in memory only, so a restart releases them all. Expiry is driven by a
+// timing wheel advanced once per tick, never by scanning the holds. Placing a hold and taking
+// stock both run under the products' locks (guard), so neither can act on a held count or an
+// on-hand count the other is about to change.
+@Service
+public class StockHoldService {
+    
+    @Value("${stock-holds.tick-ms:100}")
+    private long tickMs;
+    
+    @Value("${stock-holds.default-ttl-seconds:900}")
+    private long defaultTtlSeconds;
+    
+    @Value("${stock-holds.max-ttl-seconds:86400}")
+    private long maxTtlSeconds;
+    
+    @Value("${stock-holds.lock-stripes:64}")
+    private int lockStripeCount;
+    
+    // One lock for the holds, the per-product totals and the wheel; every operation under it is
+    // a few map and list updates
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Long, Hold> holds = new HashMap<>();
+    private final Map<Long, Integer> heldByProduct = new HashMap<>();
+    private TimingWheel<Hold> wheel;
+    private ReentrantLock[] productLocks;
+    
+    private long nextHoldId = 1;
+    private long heldUnits = 0;
+    private long placedHolds = 0;
+    private long confirmedHolds = 0;
+    private long releasedHolds = 0;
+    private long expiredHolds = 0;
+    
+    @PostConstruct
+    void init() {
+        wheel = new TimingWheel<>(tickMs, nowMs());
+        int count = Integer.highestOneBit(Math.max(1, lockStripeCount - 1)) << 1;
+        productLocks = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            productLocks[i] = new ReentrantLock();
+        }
+    }
+    
+    // Runs work holding the locks of the given products, taken in stripe order so two guards never
+    // wait on each other. Inside a transaction they are kept until it completes: a decrement only
+    // reaches the next hold's on-hand read once it is committed
+    public <T> T guard(Collection<Long> productIds, Supplier<T> work) {
+        List<ReentrantLock> locked = new ArrayList<>();
+        for (int stripe : stripesOf(productIds)) {
+            productLocks[stripe].lock();
+            locked.add(productLocks[stripe]);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    unlock(locked);
+                }
+            });
+            return work.get();
+        }
+        try {
+            return work.get();
+        } finally {
+            unlock(locked);
+        }
+    }
+    
+    // onHand has the current stock of every requested product that exists, read under guard for
+    // those products. All lines are held or none are.
+    public StockHoldResultDTO hold(Map<Long, Integer> requested, Map<Long, Integer> onHand, Long ttlSeconds) {
+        long ttl = ttlSeconds == null ? defaultTtlSeconds : ttlSeconds;
+        if (ttl < 1 || ttl > maxTtlSeconds) {
+            throw new IllegalArgumentException("Hold TTL must be between 1 and " + maxTtlSeconds + " seconds");
+        }
+        lock.lock();
+        try {
+            List<StockReservationResultDTO.ReservationFailure> failures = new ArrayList<>();
+            requested.forEach((productId, quantity) -> {
+                Integer stock = onHand.get(productId);
+                if (stock == null) {
+                    failures.add(new StockReservationResultDTO.ReservationFailure(
+                            productId, quantity, 0, "PRODUCT_NOT_FOUND"));
+                    return;
+                }
+                int available = stock - heldByProduct.getOrDefault(productId, 0);
+                if (available < quantity) {
+                    failures.add(new StockReservationResultDTO.ReservationFailure(
+                            productId, quantity, Math.max(available, 0), "INSUFFICIENT_STOCK"));
+                }
+            });
+            if (!failures.isEmpty()) {
+                return new StockHoldResultDTO(null, false, null, new ArrayList<>(), failures);
+            }
+            
+            Hold hold = new Hold(nextHoldId++, new LinkedHashMap<>(requested), LocalDateTime.now().plusSeconds(ttl),
+                    nowMs() + ttl * 1000);
+            hold.timeout = wheel.schedule(hold, hold.deadlineMs);
+            add(hold);
+            placedHolds++;
+            return new StockHoldResultDTO(hold.id, true, hold.expiresAt, hold.toItems(), new ArrayList<>());
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Removes the hold so its units can be taken from on-hand stock. If the surrounding
+    // transaction rolls back the hold comes back with its original expiry.
+    public Optional<Hold> take(Long holdId) {
+        Hold hold;
+        lock.lock();
+        try {
+            hold = holds.get(holdId);
+            if (hold == null) {
+                return Optional.empty();
+            }
+            remove(hold);
+            confirmedHolds++;
+        } finally {
+            lock.unlock();
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        restore(hold);
+                    }
+                }
+            });
+        }
+        return Optional.of(hold);
+    }
+    
+    public Optional<Hold> find(Long holdId) {
+        lock.lock();
+        try {
+            return Optional.ofNullable(holds.get(holdId));
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public boolean release(Long holdId) {
+        lock.lock();
+        try {
+            Hold hold = holds.get(holdId);
+            if (hold == null) {
+                return false;
+            }
+            remove(hold);
+            releasedHolds++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int heldQuantity(Long productId) {
+        lock.lock();
+        try {
+            return heldByProduct.getOrDefault(productId, 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Scheduled(fixedRateString = "${stock-holds.tick-ms:100}")
+    public void expire() {
+        lock.lock();
+        try {
+            expiredHolds += wheel.advance(nowMs(), hold -> {
+                holds.remove(hold.id);
+                subtractHeld(hold);
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public StockHoldStatsDTO getStats() {
+        lock.lock();
+        try {
+            StockHoldStatsDTO stats = new StockHoldStatsDTO();
+            stats.setActiveHolds(holds.size());
+            stats.setHeldUnits(heldUnits);
+            stats.setPlacedHolds(placedHolds);
+            stats.setConfirmedHolds(confirmedHolds);
+            stats.setReleasedHolds(releasedHolds);
+            stats.setExpiredHolds(expiredHolds);
+            stats.setTickMs(wheel.getTickMs());
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void restore(Hold hold) {
+        lock.lock();
+        try {
+            confirmedHolds--;
+            // Expired while the confirmation was in flight: the wheel would fire it right away
+            if (hold.deadlineMs <= nowMs()) {
+                expiredHolds++;
+                return;
+            }
+            hold.timeout = wheel.schedule(hold, hold.deadlineMs);
+            add(hold);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void add(Hold hold) {
+        holds.put(hold.id, hold);
+        hold.lines.forEach((productId, quantity) -> {
+            heldByProduct.merge(productId, quantity, Integer::sum);
+            heldUnits += quantity;
+        });
+    }
+    
+    private void remove(Hold hold) {
+        holds.remove(hold.id);
+        wheel.cancel(hold.timeout);
+        subtractHeld(hold);
+    }
+    
+    private void subtractHeld(Hold hold) {
+        hold.lines.forEach((productId, quantity) -> {
+            heldByProduct.computeIfPresent(productId, (id, held) -> held - quantity == 0 ? null : held - quantity);
+            heldUnits -= quantity;
+        });
+    }
+    
+    private TreeSet<Integer> stripesOf(Collection<Long> productIds) {
+        TreeSet<Integer> stripes = new TreeSet<>();
+        for (Long productId : productIds) {
+            stripes.add((int) (productId * 0x9E3779B97F4A7C15L >>> 32) & (productLocks.length - 1));
+        }
+        return stripes;
+    }
+    
+    private static void unlock(List<ReentrantLock> locked) {
+        for (int i = locked.size() - 1; i >= 0; i--) {
+            locked.get(i).unlock();
+        }
+    }
+    
+    private static long nowMs() {
+        return System.nanoTime() / 1_000_000;
+    }
+    
+    public static class Hold {
+        private final Long id;
+        private final Map<Long, Integer> lines;
+        private final LocalDateTime expiresAt;
+        private final long deadlineMs;
+        private TimingWheel.Timeout<Hold> timeout;
+        
+        private Hold(Long id, Map<Long, Integer> lines, LocalDateTime expiresAt, long deadlineMs) {
+            this.id = id;
+            this.lines = lines;
+            this.expiresAt = expiresAt;
+            this.deadlineMs = deadlineMs;
+        }
+        
+        // Getters
+        public Long getId() {
+            return id;
+        }
+        
+        public Map<Long, Integer> getLines() {
+            return lines;
+        }
+        
+        private List<StockReservationDTO.ReservationItem> toItems() {
+            List<StockReservationDTO.ReservationItem> items = new ArrayList<>(lines.size());
+            lines.forEach((productId, quantity) -> items.add(new StockReservationDTO.ReservationItem(productId, quantity)));
+            return items;
+        }
+    }
+}
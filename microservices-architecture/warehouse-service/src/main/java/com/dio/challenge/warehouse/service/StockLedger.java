@@ -0,0 +1,445 @@
+package com.dio.challenge.warehouse.service;
+
+import com.dio.challenge.warehouse.model.Product;
+import com.dio.challenge.warehouse.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+// Authoritative on-hand counts kept in memory when warehouse.stock-ledger.enabled=true. Products are
+// spread over lock stripes, each a primitive open-addressing table, so mutations on different SKUs
+// never contend and a mutation on a hot SKU is a few nanoseconds under one monitor instead of a row
+// lock held for a database round trip. Changed counts are written behind to the products table;
+// several changes to the same SKU between flushes cost a single UPDATE.
+// Write-behind is not durable: a crash loses every change made since the last flush. Keyed
+// reservations are recorded in stock_reservations as soon as they commit, so after a crash a
+// replayed key can answer "reserved" for units the recovered counts show as on hand again; the
+// gap covers the reservations of at most one flush interval.
+@Service
+@ConditionalOnProperty(name = "warehouse.stock-ledger.enabled", havingValue = "true")
+public class StockLedger {
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private CatalogVersion catalogVersion;
+    
+    @Value("${warehouse.stock-ledger.stripes:64}")
+    private int stripeCount;
+    
+    private Stripe[] stripes;
+    private int stripeMask;
+    
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    
+    @PostConstruct
+    void init() {
+        int count = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+        stripeMask = count - 1;
+    }
+    
+    // Recovery: the products table holds every count flushed before the last shutdown. Entries
+    // already loaded on demand are newer than the table and are kept
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        long start = System.nanoTime();
+        LongAdder loaded = new LongAdder();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            try (Stream<Product> products = productRepository.streamAll()) {
+                products.forEach(product -> {
+                    if (putIfAbsent(product)) {
+                        loaded.increment();
+                    }
+                });
+            }
+        });
+        System.out.println("Stock ledger recovered " + loaded.sum() + " products in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+    
+    public boolean contains(Long productId) {
+        return find(productId) != null;
+    }
+    
+    public Optional<Product> getProduct(Long productId) {
+        Stripe stripe = find(productId);
+        if (stripe == null) {
+            return Optional.empty();
+        }
+        synchronized (stripe) {
+            int slot = stripe.indexOf(productId);
+            return slot < 0 ? Optional.empty() : Optional.of(stripe.copyOf(slot));
+        }
+    }
+    
+    public OptionalInt available(Long productId) {
+        Stripe stripe = find(productId);
+        if (stripe == null) {
+            return OptionalInt.empty();
+        }
+        synchronized (stripe) {
+            int slot = stripe.indexOf(productId);
+            return slot < 0 ? OptionalInt.empty() : OptionalInt.of(stripe.stock[slot]);
+        }
+    }
+    
+    // Empty if the product does not exist
+    public Optional<StockChange> add(Long productId, int quantity) {
+        return apply(productId, quantity, Integer.MIN_VALUE);
+    }
+    
+    // Empty if the product does not exist or would be left with fewer than held units on hand
+    public Optional<StockChange> subtract(Long productId, int quantity, int held) {
+        return apply(productId, -quantity, held);
+    }
+    
+    // The ledger is not part of the database transaction, so a change whose transaction rolls
+    // back (e.g. the outbox insert failed) is reverted by hand
+    public void undoOnRollback(Long productId, int appliedDelta) {
+        onRollback(() -> apply(productId, -appliedDelta, Integer.MIN_VALUE));
+    }
+    
+    // Creates and edits take effect here, inside their transaction, so a ledger change made before
+    // it commits lands on top of the edited count rather than being overwritten by it; a rollback
+    // takes back only the edit's own difference. Callers must have written the row already, so a
+    // flush waits on its lock until the edit commits. The entry is marked dirty so that a flush
+    // which read the old count before the edit cannot leave it in the table
+    public void put(Product product) {
+        Product snapshot = snapshotOf(product);
+        Stripe stripe = stripeOf(snapshot.getId());
+        Product previous;
+        int delta;
+        synchronized (stripe) {
+            int slot = stripe.indexOf(snapshot.getId());
+            previous = slot < 0 ? null : stripe.snapshots[slot];
+            delta = snapshot.getStockQuantity() - (slot < 0 ? 0 : stripe.stock[slot]);
+            slot = stripe.insert(snapshot.getId());
+            stripe.stock[slot] = snapshot.getStockQuantity();
+            stripe.snapshots[slot] = snapshot;
+            stripe.dirty[slot] = true;
+        }
+        onRollback(() -> {
+            synchronized (stripe) {
+                int slot = stripe.indexOf(snapshot.getId());
+                if (slot < 0) {
+                    return;
+                }
+                if (previous == null) {
+                    // Loaded again from the table on next use
+                    stripe.delete(slot);
+                } else {
+                    stripe.stock[slot] -= delta;
+                    stripe.snapshots[slot] = previous;
+                    stripe.dirty[slot] = true;
+                }
+            }
+        });
+    }
+    
+    public void remove(Long productId) {
+        afterCommit(() -> {
+            Stripe stripe = stripeOf(productId);
+            synchronized (stripe) {
+                int slot = stripe.indexOf(productId);
+                if (slot >= 0) {
+                    stripe.delete(slot);
+                }
+            }
+        });
+    }
+    
+    @Scheduled(fixedDelayString = "${warehouse.stock-ledger.flush-interval-ms:100}")
+    public void flush() {
+        List<Object[]> rows = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (int slot = 0; slot < stripe.keys.length; slot++) {
+                    if (stripe.used[slot] && stripe.dirty[slot]) {
+                        rows.add(new Object[]{stripe.stock[slot], stripe.keys[slot]});
+                        stripe.dirty[slot] = false;
+                    }
+                }
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(
+                    "UPDATE products SET stock_quantity = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?", rows);
+            flushes.increment();
+            flushedRows.add(rows.size());
+            // Listings read the table, so until now they showed the old counts under the version
+            // the change moved; moving it again retires any ETag given to those bodies
+            for (Object[] row : rows) {
+                catalogVersion.changed((Long) row[1]);
+            }
+        } catch (RuntimeException e) {
+            // Counts are absolute, so marking the entries dirty again is enough for the next flush
+            failedFlushes.increment();
+            for (Object[] row : rows) {
+                Long productId = (Long) row[1];
+                Stripe stripe = stripeOf(productId);
+                synchronized (stripe) {
+                    int slot = stripe.indexOf(productId);
+                    if (slot >= 0) {
+                        stripe.dirty[slot] = true;
+                    }
+                }
+            }
+            System.out.println("Stock ledger flush of " + rows.size() + " products failed, will retry: " + e.getMessage());
+        }
+    }
+    
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+        System.out.println("Stock ledger flushed on shutdown (" + flushes.sum() + " flushes, "
+                + flushedRows.sum() + " rows, " + failedFlushes.sum() + " failed)");
+    }
+    
+    // floor is the least stock the change may leave behind; Integer.MIN_VALUE for unguarded changes
+    private Optional<StockChange> apply(Long productId, int delta, int floor) {
+        Stripe stripe = find(productId);
+        if (stripe == null) {
+            return Optional.empty();
+        }
+        synchronized (stripe) {
+            int slot = stripe.indexOf(productId);
+            if (slot < 0) {
+                return Optional.empty();
+            }
+            int previousStock = stripe.stock[slot];
+            if ((long) previousStock + delta < floor) {
+                return Optional.empty();
+            }
+            stripe.stock[slot] = previousStock + delta;
+            stripe.dirty[slot] = true;
+            return Optional.of(new StockChange(stripe.copyOf(slot), previousStock));
+        }
+    }
+    
+    // Products missing from the ledger (created before recovery ran, or by another path) are
+    // loaded on first use
+    private Stripe find(Long productId) {
+        Stripe stripe = stripeOf(productId);
+        synchronized (stripe) {
+            if (stripe.indexOf(productId) >= 0) {
+                return stripe;
+            }
+        }
+        Optional<Product> product = productRepository.findById(productId);
+        if (product.isEmpty()) {
+            return null;
+        }
+        putIfAbsent(product.get());
+        return stripe;
+    }
+    
+    private boolean putIfAbsent(Product product) {
+        Stripe stripe = stripeOf(product.getId());
+        synchronized (stripe) {
+            if (stripe.indexOf(product.getId()) >= 0) {
+                return false;
+            }
+            int slot = stripe.insert(product.getId());
+            stripe.stock[slot] = product.getStockQuantity();
+            stripe.snapshots[slot] = snapshotOf(product);
+            return true;
+        }
+    }
+    
+    private Stripe stripeOf(long productId) {
+        return stripes[(int) (mix(productId) >>> 32) & stripeMask];
+    }
+    
+    private static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+    
+    // Detached copy, so the ledger never holds a managed entity
+    private static Product snapshotOf(Product product) {
+        Product snapshot = new Product(product.getName(), product.getDescription(), product.getPrice(),
+                product.getStockQuantity());
+        snapshot.setId(product.getId());
+        snapshot.setCreatedAt(product.getCreatedAt());
+        snapshot.setUpdatedAt(product.getUpdatedAt());
+        return snapshot;
+    }
+    
+    private static void onRollback(Runnable undo) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    undo.run();
+                }
+            }
+        });
+    }
+    
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+    
+    public static class StockChange {
+        private final Product product;
+        private final int previousStock;
+        
+        public StockChange(Product product, int previousStock) {
+            this.product = product;
+            this.previousStock = previousStock;
+        }
+        
+        // Getters
+        public Product getProduct() {
+            return product;
+        }
+        
+        public int getPreviousStock() {
+            return previousStock;
+        }
+    }
+    
+    // Linear-probing table keyed by product id; every access holds the stripe's monitor
+    private static final class Stripe {
+        private long[] keys = new long[16];
+        private boolean[] used = new boolean[16];
+        private int[] stock = new int[16];
+        private boolean[] dirty = new boolean[16];
+        private Product[] snapshots = new Product[16];
+        private int size = 0;
+        
+        private int indexOf(long key) {
+            int mask = keys.length - 1;
+            for (int slot = (int) mix(key) & mask; used[slot]; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+        
+        private int insert(long key) {
+            int existing = indexOf(key);
+            if (existing >= 0) {
+                return existing;
+            }
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int slot = (int) mix(key) & mask;
+            while (used[slot]) {
+                slot = (slot + 1) & mask;
+            }
+            used[slot] = true;
+            keys[slot] = key;
+            size++;
+            return slot;
+        }
+        
+        // Backward-shift deletion keeps probe chains intact without tombstones
+        private void delete(int slot) {
+            int mask = keys.length - 1;
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (used[next]) {
+                int home = (int) mix(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    move(next, hole);
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            used[hole] = false;
+            dirty[hole] = false;
+            snapshots[hole] = null;
+            size--;
+        }
+        
+        private void move(int from, int to) {
+            keys[to] = keys[from];
+            stock[to] = stock[from];
+            dirty[to] = dirty[from];
+            snapshots[to] = snapshots[from];
+        }
+        
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            boolean[] oldUsed = used;
+            int[] oldStock = stock;
+            boolean[] oldDirty = dirty;
+            Product[] oldSnapshots = snapshots;
+            keys = new long[capacity];
+            used = new boolean[capacity];
+            stock = new int[capacity];
+            dirty = new boolean[capacity];
+            snapshots = new Product[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    int slot = (int) mix(oldKeys[i]) & mask;
+                    while (used[slot]) {
+                        slot = (slot + 1) & mask;
+                    }
+                    used[slot] = true;
+                    keys[slot] = oldKeys[i];
+                    stock[slot] = oldStock[i];
+                    dirty[slot] = oldDirty[i];
+                    snapshots[slot] = oldSnapshots[i];
+                }
+            }
+        }
+        
+        private Product copyOf(int slot) {
+            Product copy = snapshotOf(snapshots[slot]);
+            copy.setStockQuantity(stock[slot]);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.dio.challenge.warehouse.service;
+
+import com.dio.challenge.warehouse.dto.StockReservationResultDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+// Successful reservations by Idempotency-Key. A key is recorded in the transaction that took the
+// stock, so it exists exactly when the stock was taken: a retry after a lost response finds it
+// and is answered from it, and a retry after a rollback reserves afresh. Releasing a reservation
+// deletes its key in the transaction that gives the stock back. Rejected reservations changed
+// nothing and are not recorded.
+@Component
+public class StockReservationLog {
+    
+    public static final int MAX_KEY_LENGTH = 255;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${stock-reservations.key-ttl-hours:24}")
+    private long keyTtlHours;
+    
+    private Counter replayed;
+    
+    @PostConstruct
+    void registerMetrics() {
+        replayed = Counter.builder("stock.reservation.replayed")
+                .description("Reservation calls answered from an earlier call with the same Idempotency-Key")
+                .register(meterRegistry);
+    }
+    
+    public Optional<StockReservationResultDTO> find(String key) {
+        List<String> results = jdbcTemplate.queryForList(
+                "SELECT result FROM stock_reservations WHERE reservation_key = ?", String.class, key);
+        if (results.isEmpty()) {
+            return Optional.empty();
+        }
+        replayed.increment();
+        return Optional.of(read(key, results.get(0)));
+    }
+    
+    // Must run in the reserving transaction; a concurrent call with the same key fails here
+    // (DuplicateKeyException) once the first one commits
+    public void record(String key, StockReservationResultDTO result) {
+        try {
+            jdbcTemplate.update("INSERT INTO stock_reservations (reservation_key, result, created_at) VALUES (?, ?, ?)",
+                    key, objectMapper.writeValueAsString(result), LocalDateTime.now());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not record the reservation for key " + key, e);
+        }
+    }
+    
+    // Must run in the transaction giving the stock back. Empty if nothing is recorded under the key
+    // or a concurrent release deleted it first
+    public Optional<StockReservationResultDTO> remove(String key) {
+        List<String> results = jdbcTemplate.queryForList(
+                "SELECT result FROM stock_reservations WHERE reservation_key = ?", String.class, key);
+        if (results.isEmpty() || jdbcTemplate.update("DELETE FROM stock_reservations WHERE reservation_key = ?", key) == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(read(key, results.get(0)));
+    }
+    
+    @Scheduled(fixedDelayString = "${stock-reservations.purge-interval-ms:600000}")
+    public void purge() {
+        jdbcTemplate.update("DELETE FROM stock_reservations WHERE created_at < ?",
+                LocalDateTime.now().minusHours(keyTtlHours));
+    }
+    
+    private StockReservationResultDTO read(String key, String result) {
+        try {
+            return objectMapper.readValue(result, StockReservationResultDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable reservation recorded for key " + key, e);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.dio.challenge.warehouse.service;
+
+import java.util.function.Consumer;
+
+// Hierarchical timing wheel: four levels of 64 slots, each level's slot spanning 64 ticks of the
+// level below. Scheduling and cancelling are O(1) list operations; an entry is moved down a level
+// at most three times before it expires, so expiring one entry is O(1) however many are pending.
+// Not thread-safe: callers hold their own lock.
+public class TimingWheel<T> {
+    
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    
+    // Deadlines further out than the top level can reach are parked at its far end and
+    // re-placed when that slot cascades
+    private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+    
+    private final long tickMs;
+    private final long startMs;
+    private final Timeout<T>[][] slots;
+    
+    // Last tick whose slot has been expired
+    private long currentTick = 0;
+    private int size = 0;
+    
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMs, long startMs) {
+        if (tickMs < 1) {
+            throw new IllegalArgumentException("Tick must be at least 1 ms");
+        }
+        this.tickMs = tickMs;
+        this.startMs = startMs;
+        this.slots = new Timeout[LEVELS][SLOTS];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                Timeout<T> head = new Timeout<>(null, 0);
+                head.prev = head;
+                head.next = head;
+                slots[level][slot] = head;
+            }
+        }
+    }
+    
+    // Deadlines are rounded up to the next tick; one already due expires on the next advance
+    public Timeout<T> schedule(T item, long deadlineMs) {
+        long deadlineTick = Math.floorDiv(deadlineMs - startMs + tickMs - 1, tickMs);
+        Timeout<T> timeout = new Timeout<>(item, Math.max(deadlineTick, currentTick + 1));
+        place(timeout);
+        size++;
+        return timeout;
+    }
+    
+    public boolean cancel(Timeout<T> timeout) {
+        if (timeout.prev == null) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+    
+    // Expires every entry due at or before nowMs and returns how many there were. Each elapsed
+    // tick costs one slot visit plus, every 64 ticks, one cascade of the slot above.
+    public int advance(long nowMs, Consumer<T> onExpire) {
+        long targetTick = Math.floorDiv(nowMs - startMs, tickMs);
+        int expired = 0;
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+            Timeout<T> head = slots[0][(int) (currentTick & SLOT_MASK)];
+            while (head.next != head) {
+                Timeout<T> timeout = head.next;
+                unlink(timeout);
+                size--;
+                expired++;
+                onExpire.accept(timeout.item);
+            }
+        }
+        return expired;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public long getTickMs() {
+        return tickMs;
+    }
+    
+    // When the ticks below a level wrap around, the level's next slot is due: its entries are
+    // re-placed relative to the current tick, landing in lower levels. Higher levels go first so
+    // entries they hand down can cascade again within the same tick.
+    private void cascade() {
+        int wrapped = 0;
+        while (wrapped < LEVELS - 1 && (currentTick & ((1L << (SLOT_BITS * (wrapped + 1))) - 1)) == 0) {
+            wrapped++;
+        }
+        for (int level = wrapped; level >= 1; level--) {
+            Timeout<T> head = slots[level][(int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK)];
+            Timeout<T> pending = head.next;
+            head.prev = head;
+            head.next = head;
+            while (pending != head) {
+                Timeout<T> next = pending.next;
+                place(pending);
+                pending = next;
+            }
+        }
+    }
+    
+    private void place(Timeout<T> timeout) {
+        long delta = Math.min(timeout.deadlineTick - currentTick, MAX_DELTA);
+        long tick = currentTick + delta;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        Timeout<T> head = slots[level][(int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK)];
+        timeout.prev = head.prev;
+        timeout.next = head;
+        head.prev.next = timeout;
+        head.prev = timeout;
+    }
+    
+    private static <T> void unlink(Timeout<T> timeout) {
+        timeout.prev.next = timeout.next;
+        timeout.next.prev = timeout.prev;
+        timeout.prev = null;
+        timeout.next = null;
+    }
+    
+    // Handle returned by schedule; also the list node, so cancelling needs no lookup
+    public static final class Timeout<T> {
+        private final T item;
+        private final long deadlineTick;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        
+        private Timeout(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+        
+        public T getItem() {
+            return item;
+        }
+    }
+}
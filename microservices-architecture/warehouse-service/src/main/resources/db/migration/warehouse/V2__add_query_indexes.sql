@@ -0,0 +1,5 @@
+-- findLowStockProducts (stock_quantity <= ?) and findAvailableProducts (stock_quantity > 0)
+CREATE INDEX idx_products_stock_quantity ON products (stock_quantity);
+
+-- Keyset catalog pages and the NDJSON export: ORDER BY created_at, id
+CREATE INDEX idx_products_created_at_id ON products (created_at, id);
@@ -0,0 +1,10 @@
+-- Reservations made under an Idempotency-Key, written in the same transaction as the stock they
+-- took, so a retried call gets the recorded answer instead of taking the stock again. Rows older
+-- than stock-reservations.key-ttl-hours are purged
+CREATE TABLE stock_reservations (
+    reservation_key VARCHAR(255) PRIMARY KEY,
+    result CLOB NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX idx_stock_reservations_created_at ON stock_reservations (created_at);
@@ -0,0 +1,4 @@
+-- Events the relay could not turn into a message (a payload that no longer reads back into its
+-- class, say) are kept here with the reason instead of blocking the outbox; they are not retried
+ALTER TABLE outbox_events ADD COLUMN dead_lettered_at TIMESTAMP(6);
+ALTER TABLE outbox_events ADD COLUMN failure VARCHAR(1000);
@@ -0,0 +1,67 @@
+package com.dio.challenge.warehouse.repository;
+
+import com.dio.challenge.warehouse.model.Product;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The queries V2__add_query_indexes.sql was written for, each checked against H2's plan for the
+// SQL Hibernate actually generates: the plan must name the index and scan no table
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.dio.challenge.warehouse.repository.ProductRepositoryIndexTest$RecordedSql")
+class ProductRepositoryIndexTest {
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void stockFiltersUseStockQuantityIndex() {
+        assertUsesIndex("IDX_PRODUCTS_STOCK_QUANTITY", () -> productRepository.findAvailableProducts());
+        assertUsesIndex("IDX_PRODUCTS_STOCK_QUANTITY", () -> productRepository.countAvailableProducts());
+        assertUsesIndex("IDX_PRODUCTS_STOCK_QUANTITY", () -> productRepository.findLowStockProducts(10));
+    }
+    
+    @Test
+    void catalogOrderUsesCreatedAtIndex() {
+        assertUsesIndex("IDX_PRODUCTS_CREATED_AT_ID",
+                () -> productRepository.findPageAfter(LocalDateTime.of(1, 1, 1, 0, 0), 0L, PageRequest.ofSize(50)));
+        assertUsesIndex("IDX_PRODUCTS_CREATED_AT_ID", () -> {
+            try (Stream<Product> products = productRepository.streamAll()) {
+                products.findFirst();
+            }
+        });
+    }
+    
+    private void assertUsesIndex(String index, Runnable query) {
+        RecordedSql.STATEMENTS.clear();
+        query.run();
+        assertThat(RecordedSql.STATEMENTS).isNotEmpty();
+        String sql = RecordedSql.STATEMENTS.get(RecordedSql.STATEMENTS.size() - 1);
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+        assertThat(plan).as(plan).contains("PUBLIC." + index).doesNotContain("tableScan");
+    }
+    
+    // Set as Hibernate's statement inspector above; sees every SQL string before it is prepared
+    public static class RecordedSql implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+        
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.dio.challenge.warehouse.service;
+
+import com.dio.challenge.warehouse.dto.StockUpdateDTO;
+import com.dio.challenge.warehouse.model.Product;
+import com.dio.challenge.warehouse.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Many more SUBTRACTs than units, released at once against one SKU: the conditional decrement
+// must let exactly the units in stock through and reject the rest
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:warehouse-concurrency",
+        "spring.rabbitmq.listener.simple.auto-startup=false"
+})
+class ProductServiceConcurrencyTest {
+    
+    private static final int INITIAL_STOCK = 3000;
+    private static final int REQUESTS = 5000;
+    private static final int THREADS = 64;
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Test
+    void parallelSubtractsNeverOversell() throws Exception {
+        Long productId = productRepository.save(new Product("Contended SKU", "Stock decremented from many threads",
+                new BigDecimal("10.00"), INITIAL_STOCK)).getId();
+        
+        AtomicInteger successes = new AtomicInteger();
+        AtomicInteger rejections = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> requests = new ArrayList<>(REQUESTS);
+        try {
+            for (int i = 0; i < REQUESTS; i++) {
+                requests.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        productService.updateStock(new StockUpdateDTO(productId, 1, "SUBTRACT"));
+                        successes.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        rejections.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> request : requests) {
+                request.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        int finalStock = productRepository.findById(productId).orElseThrow().getStockQuantity();
+        assertThat(successes.get()).isLessThanOrEqualTo(INITIAL_STOCK);
+        assertThat(finalStock).isEqualTo(INITIAL_STOCK - successes.get());
+        assertThat(successes.get() + rejections.get()).isEqualTo(REQUESTS);
+        assertThat(finalStock).isZero();
+    }
+}